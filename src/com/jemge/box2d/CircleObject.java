@@ -74,6 +74,14 @@ public class CircleObject extends PhysicObject implements Serializable {
 		return this.position;
 	}
 
+	public Vector2 getRenderPosition() {
+		if (this.body == null) {
+			return getPosition();
+		}
+		return Physics2D.getInterpolatedPosition(this.body, this.INTERPOLATED)
+				.sub(this.radius / 2, this.radius / 2);
+	}
+
 	public void setRadius(float radius) {
 		this.radius = radius;
 	}
@@ -0,0 +1,34 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.box2d;
+
+import com.badlogic.gdx.physics.box2d.Fixture;
+
+/**
+ * Contacts of a world, collected during the step and delivered afterwards on
+ * the main thread. Bodies can be created and destroyed in the callbacks, but
+ * later events of the same step may still name fixtures destroyed by an
+ * earlier one.
+ *
+ * @see Physics2D#setContactListener(String, IContactListener)
+ */
+
+public interface IContactListener {
+	public void beginContact(Fixture fixtureA, Fixture fixtureB);
+
+	public void endContact(Fixture fixtureA, Fixture fixtureB);
+}
@@ -29,6 +29,7 @@ public abstract class PhysicObject extends PhysicObjectBody implements
 		Serializable {
 	protected static final BodyDef BODYDEF = new BodyDef();
 	protected Vector2 position;
+	protected final Vector2 INTERPOLATED = new Vector2();
 
 	// TODO wird nicht verwendet?
 	public PhysicObject setPhysicData(float density, float friction,
@@ -90,6 +91,29 @@ public abstract class PhysicObject extends PhysicObjectBody implements
 
 	public abstract Vector2 getPosition();
 
+	/**
+	 * @return position between the last two physics steps for drawing, see
+	 *         {@link Physics2D#getInterpolatedPosition}. Game logic should
+	 *         use {@link #getPosition()}.
+	 */
+	public abstract Vector2 getRenderPosition();
+
+	/**
+	 * @return angle in radians
+	 */
+	public float getAngle() {
+		return this.body == null ? 0f : this.body.getAngle();
+	}
+
+	/**
+	 * @return angle in radians between the last two physics steps for
+	 *         drawing, see {@link Physics2D#getInterpolatedAngle}
+	 */
+	public float getRenderAngle() {
+		return this.body == null ? 0f : Physics2D
+				.getInterpolatedAngle(this.body);
+	}
+
 	public Body getBody() {
 		return body;
 	}
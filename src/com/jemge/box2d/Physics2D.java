@@ -17,33 +17,146 @@
 package com.jemge.box2d;
 
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.jemge.core.EngineModule;
+import com.jemge.core.Jemge;
 
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Physics2D extends EngineModule {
 	private static HashMap<String, World> worlds;
+	private static HashMap<World, WorldState> states;
 	public static int positionInteractions = 2;
 	public static int velocityInteractions = 2;
 	public static float timeStep = 1f / 30f;
+	/**
+	 * Step the worlds with {@link #timeStep} as often as the frame time needs
+	 * instead of once per frame. Render with
+	 * {@link #getInterpolatedPosition(Body, Vector2)} to smooth the motion
+	 * between two steps.
+	 */
+	public static boolean fixedTimeStep = false;
+	/**
+	 * Most steps per frame with {@link #fixedTimeStep}, slower frames slow
+	 * down the simulation instead of taking even longer.
+	 */
+	public static int maxSubSteps = 5;
+	/**
+	 * Step the worlds at the same time on a worker pool, update waits until
+	 * all of them are done. Only use it for worlds that don't share bodies
+	 * or listeners. A ContactListener set directly on a world is called on a
+	 * worker thread, use {@link #setContactListener(String, IContactListener)}
+	 * to get the contacts on the main thread.
+	 */
+	public static boolean parallelStep = false;
+	private static ForkJoinPool stepPool;
+	private static float accumulator = 0;
+	private static float alpha = 1f;
 	private static String main_world = "main";
 
 	@Override
 	public void init() {
 		worlds = new HashMap<String, World>(1);
-		worlds.put("main", new World(new Vector2(0, -20f), true));
+		states = new HashMap<World, WorldState>(1);
+		newWorld("main", new World(new Vector2(0, -20f), true));
 	}
 
 	@Override
 	public void update() {
-		for (World world : worlds.values()) {
-			world.step(timeStep, velocityInteractions, positionInteractions);
+		int steps = 1;
+		if (fixedTimeStep) {
+			accumulator += Jemge.engine.getDeltaTime();
+			steps = Math.min((int) (accumulator / timeStep), maxSubSteps);
+			accumulator -= steps * timeStep;
+			if (accumulator >= timeStep) {
+				// too far behind, drop the time we can't catch up
+				accumulator %= timeStep;
+			}
+			alpha = accumulator / timeStep;
+		} else {
+			alpha = 1f;
+		}
+
+		if (parallelStep && states.size() > 1) {
+			if (stepPool == null) {
+				stepPool = new ForkJoinPool();
+			}
+			for (WorldState state : states.values()) {
+				state.fork(stepPool, steps);
+			}
+			for (WorldState state : states.values()) {
+				state.join();
+			}
+		} else {
+			for (WorldState state : states.values()) {
+				state.step(steps);
+			}
+		}
+
+		for (WorldState state : states.values()) {
+			state.deliverContacts();
+		}
+	}
+
+	/**
+	 * @return 0 to 1, how far the frame is between the last two steps
+	 */
+	public static float getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Position of the body between the last two steps, for rendering with
+	 * {@link #fixedTimeStep}. Otherwise the current position.
+	 */
+	public static Vector2 getInterpolatedPosition(Body body, Vector2 out) {
+		final Vector2 POSITION = body.getPosition();
+		final WorldState STATE = states.get(body.getWorld());
+		final int INDEX = STATE == null || !fixedTimeStep ? -1 : STATE.INDEX
+				.get(body, -1);
+		if (INDEX == -1) {
+			return out.set(POSITION);
+		}
+
+		final float X = STATE.previous[INDEX * 3];
+		final float Y = STATE.previous[INDEX * 3 + 1];
+		return out.set(X + (POSITION.x - X) * alpha, Y + (POSITION.y - Y)
+				* alpha);
+	}
+
+	/**
+	 * @see #getInterpolatedPosition(Body, Vector2)
+	 */
+	public static float getInterpolatedAngle(Body body) {
+		final WorldState STATE = states.get(body.getWorld());
+		final int INDEX = STATE == null || !fixedTimeStep ? -1 : STATE.INDEX
+				.get(body, -1);
+		if (INDEX == -1) {
+			return body.getAngle();
 		}
+
+		final float PREVIOUS = STATE.previous[INDEX * 3 + 2];
+		return PREVIOUS + (body.getAngle() - PREVIOUS) * alpha;
 	}
 
 	public static World newWorld(String name, World world) {
-		worlds.put(name, world);
+		final World OLD = worlds.put(name, world);
+		if (OLD != null) {
+			states.remove(OLD);
+		}
+		states.put(world, new WorldState(world));
 
 		return world;
 	}
@@ -60,10 +173,156 @@ public class Physics2D extends EngineModule {
 		main_world = name;
 	}
 
+	/**
+	 * Collects the contacts of the world while it steps and passes them to
+	 * the listener on the main thread afterwards. Replaces the
+	 * ContactListener of the world, null removes it.
+	 */
+	public static void setContactListener(String name,
+			IContactListener listener) {
+		final WorldState STATE = states.get(worlds.get(name));
+		if (STATE == null) {
+			throw new NullPointerException("This world doesn't exist.");
+		}
+
+		STATE.contactListener = listener;
+		STATE.WORLD.setContactListener(listener == null ? null : STATE);
+	}
+
+	/**
+	 * @return time in milliseconds the world needed for its steps in the last
+	 *         frame
+	 */
+	public static float getStepTime(String name) {
+		final WorldState STATE = states.get(worlds.get(name));
+		if (STATE == null) {
+			throw new NullPointerException("This world doesn't exist.");
+		}
+		return STATE.stepTime / 1000000f;
+	}
+
 	@Override
 	public void dispose() {
+		if (stepPool != null) {
+			stepPool.shutdown();
+			stepPool = null;
+		}
 		for (World world : worlds.values()) {
 			world.dispose();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Steps a world and keeps what has to survive the step: the transforms of
+	 * the moving bodies before the last step and the contacts.
+	 */
+	private static final class WorldState implements ContactListener {
+		private final World WORLD;
+		private final RecursiveAction STEPTASK;
+		private int steps;
+		private long stepTime;
+
+		private final Array<Body> BODIES = new Array<Body>(false, 64);
+		private final ObjectIntMap<Body> INDEX = new ObjectIntMap<Body>();
+		private float[] previous = new float[64 * 3];
+
+		private IContactListener contactListener;
+		private final Array<Fixture> CONTACTS = new Array<Fixture>(false, 32);
+		private final BooleanArray BEGINS = new BooleanArray(false, 16);
+
+		private WorldState(World world) {
+			this.WORLD = world;
+			this.STEPTASK = new RecursiveAction() {
+				@Override
+				protected void compute() {
+					step(WorldState.this.steps);
+				}
+			};
+		}
+
+		private void fork(ForkJoinPool pool, int steps) {
+			this.steps = steps;
+			this.STEPTASK.reinitialize();
+			pool.execute(this.STEPTASK);
+		}
+
+		private void join() {
+			this.STEPTASK.join();
+		}
+
+		private void step(int steps) {
+			final long START = System.nanoTime();
+			for (int i = 0; i < steps; i++) {
+				if (fixedTimeStep) {
+					save();
+				}
+				this.WORLD.step(timeStep, velocityInteractions,
+						positionInteractions);
+			}
+			this.stepTime = System.nanoTime() - START;
+		}
+
+		private void save() {
+			this.BODIES.clear();
+			this.INDEX.clear();
+			this.WORLD.getBodies(this.BODIES);
+			if (this.previous.length < this.BODIES.size * 3) {
+				this.previous = new float[this.BODIES.size * 6];
+			}
+
+			int count = 0;
+			for (int i = 0; i < this.BODIES.size; i++) {
+				final Body BODY = this.BODIES.get(i);
+				if (BODY.getType() == BodyDef.BodyType.StaticBody) {
+					continue;
+				}
+
+				final Vector2 POSITION = BODY.getPosition();
+				this.previous[count * 3] = POSITION.x;
+				this.previous[count * 3 + 1] = POSITION.y;
+				this.previous[count * 3 + 2] = BODY.getAngle();
+				this.INDEX.put(BODY, count++);
+			}
+			this.BODIES.clear();
+		}
+
+		private void deliverContacts() {
+			for (int i = 0; i < this.BEGINS.size
+					&& this.contactListener != null; i++) {
+				final Fixture A = this.CONTACTS.get(i * 2);
+				final Fixture B = this.CONTACTS.get(i * 2 + 1);
+				if (this.BEGINS.get(i)) {
+					this.contactListener.beginContact(A, B);
+				} else {
+					this.contactListener.endContact(A, B);
+				}
+			}
+			this.CONTACTS.clear();
+			this.BEGINS.clear();
+		}
+
+		// the Contact is reused by the world, keep the fixtures only
+
+		@Override
+		public void beginContact(Contact contact) {
+			this.CONTACTS.add(contact.getFixtureA());
+			this.CONTACTS.add(contact.getFixtureB());
+			this.BEGINS.add(true);
+		}
+
+		@Override
+		public void endContact(Contact contact) {
+			this.CONTACTS.add(contact.getFixtureA());
+			this.CONTACTS.add(contact.getFixtureB());
+			this.BEGINS.add(false);
+		}
+
+		@Override
+		public void preSolve(Contact contact, Manifold oldManifold) {
+		}
+
+		@Override
+		public void postSolve(Contact contact, ContactImpulse impulse) {
+		}
+	}
+}
@@ -131,6 +131,14 @@ public class PolygonObject extends PhysicObject implements Serializable {
 		return this.position;
 	}
 
+	public Vector2 getRenderPosition() {
+		if (this.body == null) {
+			return getPosition();
+		}
+		return Physics2D.getInterpolatedPosition(this.body, this.INTERPOLATED)
+				.sub(this.width / 2, this.height / 2);
+	}
+
 	public float getHeight() {
 		return this.height;
 	}
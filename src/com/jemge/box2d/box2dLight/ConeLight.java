@@ -63,6 +63,8 @@ public class ConeLight extends PositionalLight {
 			coneDegree = 180;
 		}
 		this.coneDegree = coneDegree;
+		// the direction stays the same, the rays don't
+		this.dirty = true;
 		setDirection(this.direction);
 	}
 
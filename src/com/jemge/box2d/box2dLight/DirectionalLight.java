@@ -28,6 +28,7 @@ public class DirectionalLight extends Light {
 	 */
 	public DirectionalLight(int rays, Color color, float directionDegree) {
 		super(rays, color, directionDegree, Float.POSITIVE_INFINITY);
+		this.rayHandler.LIGHTINDEX.add(this);
 
 		this.vertexNum = (this.vertexNum - 1) * 2;
 
@@ -70,6 +71,11 @@ public class DirectionalLight extends Light {
 			return;
 		}
 
+		this.rayHandler.lightUpdatedLastFrame++;
+		if (this.rayHandler.world != null && !this.xray) {
+			this.rayHandler.raycastsLastFrame += this.rayNum;
+		}
+
 		final float WIDTH = (this.rayHandler.x2 - this.rayHandler.x1);
 		final float HEIGHT = (this.rayHandler.y2 - this.rayHandler.y1);
 
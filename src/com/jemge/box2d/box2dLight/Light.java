@@ -9,6 +9,7 @@ import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.RayCastCallback;
 import com.jemge.core.Jemge;
 import com.jemge.j2d.IEntity;
+import com.jemge.j2d.culling.DynamicTree;
 
 /**
  * @author kalle
@@ -34,7 +35,15 @@ public abstract class Light {
 
 	protected RayHandler rayHandler;
 	protected boolean culled = false;
+	/**
+	 * forces the next update to cast the rays and fill the meshes
+	 */
+	protected boolean dirty = true;
 	protected int rayNum;
+	/**
+	 * rays the light was created with, the arrays and meshes have this size
+	 */
+	protected int maxRayNum;
 	protected int vertexNum;
 	protected float distance;
 	protected float direction;
@@ -53,6 +62,12 @@ public abstract class Light {
 	protected float[] f;
 	protected int m_index = 0;
 
+	int indexProxy = DynamicTree.NULL_NODE;
+	/**
+	 * texture coordinate of the row in the {@link ShadowMap}, -1 without
+	 */
+	float shadowRow = -1;
+
 	public Light(int rays, Color color, float directionDegree, float distance) {
 		Jemge.renderer2D.getRayHandler().LIGHTLIST.add(this);
 		this.rayHandler = Jemge.renderer2D.getRayHandler();
@@ -123,6 +138,7 @@ public abstract class Light {
 
 	public void remove() {
 		this.rayHandler.LIGHTLIST.removeValue(this, false);
+		this.rayHandler.LIGHTINDEX.remove(this);
 		this.lightMesh.dispose();
 		this.softShadowMesh.dispose();
 	}
@@ -200,10 +216,14 @@ public abstract class Light {
 	// TODO protected or public?
 	protected void staticUpdate() {
 		boolean tmp = this.rayHandler.culling;
+		boolean lod = this.rayHandler.rayLod; // static lights keep all rays
 		this.staticLight = !this.staticLight;
 		this.rayHandler.culling = false;
+		this.rayHandler.rayLod = false;
+		this.dirty = true;
 		update();
 		this.rayHandler.culling = tmp;
+		this.rayHandler.rayLod = lod;
 		this.staticLight = !this.staticLight;
 	}
 
@@ -224,9 +244,13 @@ public abstract class Light {
 		if (active) {
 			this.rayHandler.LIGHTLIST.add(this);
 			this.rayHandler.DISABLEDLIGHTS.removeValue(this, true);
+			this.rayHandler.LIGHTINDEX.add(this);
+			// the world may have changed while it was off
+			this.dirty = true;
 		} else {
 			this.rayHandler.DISABLEDLIGHTS.add(this);
 			this.rayHandler.LIGHTLIST.removeValue(this, true);
+			this.rayHandler.LIGHTINDEX.remove(this);
 		}
 
 		this.active = active;
@@ -331,6 +355,7 @@ public abstract class Light {
 		}
 
 		this.rayNum = rays;
+		this.maxRayNum = rays;
 		this.vertexNum = rays + 1;
 
 		this.segments = new float[this.vertexNum * 8];
@@ -339,6 +364,23 @@ public abstract class Light {
 		this.f = new float[this.vertexNum];
 	}
 
+	/**
+	 * Changes the number of rays in use, up to the rays the light was created
+	 * with. Doesn't allocate, the arrays and meshes keep their size.
+	 * 
+	 * @return true if the number changed
+	 */
+	protected final boolean setActiveRayNum(int rays) {
+		rays = Math.max(MIN_RAYS, Math.min(rays, this.maxRayNum));
+		if (rays == this.rayNum) {
+			return false;
+		}
+
+		this.rayNum = rays;
+		this.vertexNum = rays + 1;
+		return true;
+	}
+
 	/**
 	 * Color getColor
 	 * 
@@ -380,7 +422,7 @@ public abstract class Light {
 		}
 	};
 
-	private final boolean contactFilter(Fixture fixtureB) {
+	static boolean contactFilter(Fixture fixtureB) {
 		Filter filterB = fixtureB.getFilterData();
 
 		if (filterA.groupIndex == filterB.groupIndex && filterA.groupIndex != 0) {
@@ -394,7 +436,7 @@ public abstract class Light {
 	/**
 	 * light filter *
 	 */
-	private static Filter filterA = null;
+	static Filter filterA = null;
 
 	/**
 	 * set given contact filter for ALL LIGHTS
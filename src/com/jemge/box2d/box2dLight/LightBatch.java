@@ -0,0 +1,137 @@
+package com.jemge.box2d.box2dLight;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Draws the fans and soft shadow strips of many positional lights as indexed
+ * triangles of one streaming mesh, uploaded and drawn once per flush instead
+ * of two uploads and draws per light. The vertices have the layout of the
+ * light meshes, so the light shader is the same.
+ */
+
+class LightBatch implements Disposable {
+	/**
+	 * vertices per draw call, an index has to fit into an unsigned short
+	 */
+	static final int MAX_VERTICES = 16384;
+	private static final int VERTEX_SIZE = 4;
+
+	private final Mesh MESH;
+	private final float[] VERTICES = new float[MAX_VERTICES * VERTEX_SIZE];
+	private final short[] INDICES = new short[MAX_VERTICES * 3];
+	private ShaderProgram shader;
+	private int vertexCount = 0;
+	private int indexCount = 0;
+
+	/**
+	 * draw calls since the last begin
+	 */
+	int drawCalls = 0;
+
+	LightBatch() {
+		this.MESH = new Mesh(false, MAX_VERTICES, MAX_VERTICES * 3,
+				new VertexAttribute(Usage.Position, 2, "vertex_positions"),
+				new VertexAttribute(Usage.ColorPacked, 4, "quad_colors"),
+				new VertexAttribute(Usage.Generic, 1, "s"));
+	}
+
+	/**
+	 * @param shader
+	 *            the bound light shader
+	 */
+	void begin(ShaderProgram shader) {
+		this.shader = shader;
+		this.drawCalls = 0;
+	}
+
+	private static boolean isSoft(PositionalLight light) {
+		return light.soft && !light.xray;
+	}
+
+	private static int vertices(PositionalLight light) {
+		return light.rayNum + 1 + (isSoft(light) ? light.rayNum * 2 : 0);
+	}
+
+	private static int indices(PositionalLight light) {
+		return (light.rayNum - 1) * (isSoft(light) ? 9 : 3);
+	}
+
+	/**
+	 * @return false if the light has too many rays for one draw call, about
+	 *         5460 soft or 16383 hard ones, it has to be drawn on its own
+	 */
+	static boolean fits(PositionalLight light) {
+		return vertices(light) <= MAX_VERTICES
+				&& indices(light) <= MAX_VERTICES * 3;
+	}
+
+	/**
+	 * Adds a light that {@link #fits}.
+	 */
+	void add(PositionalLight light) {
+		final int RAYS = light.rayNum;
+		final boolean SOFT = isSoft(light);
+		final int VERTICES = vertices(light);
+		final int INDICES = indices(light);
+		if (this.vertexCount + VERTICES > MAX_VERTICES
+				|| this.indexCount + INDICES > this.INDICES.length) {
+			flush();
+		}
+
+		// the fan: center, then the ends of the rays
+		final int CENTER = this.vertexCount;
+		light.writeLight(this.VERTICES, CENTER * VERTEX_SIZE);
+		for (int i = 1; i < RAYS; i++) {
+			this.INDICES[this.indexCount++] = (short) CENTER;
+			this.INDICES[this.indexCount++] = (short) (CENTER + i);
+			this.INDICES[this.indexCount++] = (short) (CENTER + i + 1);
+		}
+		this.vertexCount += RAYS + 1;
+
+		if (SOFT) {
+			// the strip: pairs of inner and outer vertex per ray
+			final int STRIP = this.vertexCount;
+			light.writeSoftShadow(this.VERTICES, STRIP * VERTEX_SIZE);
+			for (int i = 0; i < RAYS - 1; i++) {
+				final int INNER = STRIP + i * 2;
+				this.INDICES[this.indexCount++] = (short) INNER;
+				this.INDICES[this.indexCount++] = (short) (INNER + 1);
+				this.INDICES[this.indexCount++] = (short) (INNER + 2);
+				this.INDICES[this.indexCount++] = (short) (INNER + 1);
+				this.INDICES[this.indexCount++] = (short) (INNER + 3);
+				this.INDICES[this.indexCount++] = (short) (INNER + 2);
+			}
+			this.vertexCount += RAYS * 2;
+		}
+	}
+
+	void flush() {
+		if (this.indexCount == 0) {
+			this.vertexCount = 0;
+			return;
+		}
+
+		this.MESH.setVertices(this.VERTICES, 0, this.vertexCount * VERTEX_SIZE);
+		this.MESH.setIndices(this.INDICES, 0, this.indexCount);
+		this.MESH.render(this.shader, GL20.GL_TRIANGLES, 0, this.indexCount);
+		this.drawCalls++;
+
+		this.vertexCount = 0;
+		this.indexCount = 0;
+	}
+
+	void end() {
+		flush();
+		this.shader = null;
+	}
+
+	@Override
+	public void dispose() {
+		this.MESH.dispose();
+	}
+}
@@ -0,0 +1,422 @@
+package com.jemge.box2d.box2dLight;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Copy of the fixtures of a world in world coordinates, as line segments and
+ * circles. Box2D can't cast rays from several threads, this copy can: it is
+ * built on the main thread after the physics step and only read while the
+ * lights cast their rays.
+ * <p/>
+ * The hits match Box2D: polygons and circles only block rays coming from
+ * outside, edges and chains block from both sides.
+ * <p/>
+ * The shapes are sorted into a uniform grid over their bounds, so a query
+ * only tests the shapes in the cells it overlaps.
+ */
+
+class LightGeometry {
+	private static final int MAX_SIDE = 64; // cells per row and column
+
+	private final Array<Body> BODIES = new Array<Body>(false, 64);
+	private final Vector2 VERTEX = new Vector2();
+	private final Vector2 FIRST = new Vector2();
+	private final Vector2 PREVIOUS = new Vector2();
+
+	// x1, y1, x2, y2 per segment
+	private float[] segments = new float[256];
+	private boolean[] twoSided = new boolean[64];
+	private int segmentCount;
+
+	// x, y, radius per circle
+	private float[] circles = new float[48];
+	private int circleCount;
+
+	// shapes per cell, as in query(): cell i holds cellItems[cellStart[i]]
+	// to cellItems[cellStart[i + 1] - 1]
+	private int[] cellStart = new int[1];
+	private int[] cellItems = new int[64];
+	private int columns, rows;
+	private float gridX, gridY, cellWidth, cellHeight;
+
+	/**
+	 * Copies the fixtures of the world that pass the light contact filter.
+	 * Must be called on the thread that steps the world.
+	 */
+	public void build(World world) {
+		this.segmentCount = 0;
+		this.circleCount = 0;
+
+		world.getBodies(this.BODIES);
+		for (int i = 0; i < this.BODIES.size; i++) {
+			final Body BODY = this.BODIES.get(i);
+			if (!BODY.isActive()) {
+				continue; // Box2D ignores them too
+			}
+			final Transform TRANSFORM = BODY.getTransform();
+			final Array<Fixture> FIXTURES = BODY.getFixtureList();
+			for (int j = 0; j < FIXTURES.size; j++) {
+				final Fixture FIXTURE = FIXTURES.get(j);
+				if (Light.filterA != null && !Light.contactFilter(FIXTURE)) {
+					continue;
+				}
+				addFixture(FIXTURE, TRANSFORM);
+			}
+		}
+		this.BODIES.clear();
+		buildGrid();
+	}
+
+	/**
+	 * Sorts the shapes into the cells, each shape as in {@link #query}.
+	 */
+	private void buildGrid() {
+		final int SHAPES = this.segmentCount + this.circleCount;
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = -this.circleCount; i < this.segmentCount; i++) {
+			minX = Math.min(minX, getMinX(i));
+			minY = Math.min(minY, getMinY(i));
+			maxX = Math.max(maxX, getMaxX(i));
+			maxY = Math.max(maxY, getMaxY(i));
+		}
+
+		// about one shape per cell
+		this.columns = SHAPES == 0 ? 0 : Math.min(MAX_SIDE,
+				(int) Math.ceil(Math.sqrt(SHAPES)));
+		this.rows = this.columns;
+		this.gridX = minX;
+		this.gridY = minY;
+		this.cellWidth = maxX > minX ? (maxX - minX) / this.columns : 1;
+		this.cellHeight = maxY > minY ? (maxY - minY) / this.rows : 1;
+
+		final int CELLS = this.columns * this.rows;
+		if (this.cellStart.length < CELLS + 1) {
+			this.cellStart = new int[CELLS + 1];
+		}
+		Arrays.fill(this.cellStart, 0, CELLS + 1, 0);
+
+		// count the shapes per cell, the sums are the ends of the cells
+		for (int i = -this.circleCount; i < this.segmentCount; i++) {
+			final int COLUMN = column(getMinX(i));
+			final int LASTCOLUMN = column(getMaxX(i));
+			for (int y = row(getMinY(i)); y <= row(getMaxY(i)); y++) {
+				for (int x = COLUMN; x <= LASTCOLUMN; x++) {
+					this.cellStart[y * this.columns + x]++;
+				}
+			}
+		}
+		int total = 0;
+		for (int i = 0; i < CELLS; i++) {
+			total += this.cellStart[i];
+			this.cellStart[i] = total;
+		}
+		this.cellStart[CELLS] = total;
+		if (this.cellItems.length < total) {
+			this.cellItems = new int[total];
+		}
+
+		// fill the cells backwards, which moves the ends to the starts
+		for (int i = -this.circleCount; i < this.segmentCount; i++) {
+			final int COLUMN = column(getMinX(i));
+			final int LASTCOLUMN = column(getMaxX(i));
+			for (int y = row(getMinY(i)); y <= row(getMaxY(i)); y++) {
+				for (int x = COLUMN; x <= LASTCOLUMN; x++) {
+					this.cellItems[--this.cellStart[y * this.columns + x]] = i;
+				}
+			}
+		}
+	}
+
+	private int column(float x) {
+		return Math.max(0, Math.min(this.columns - 1,
+				(int) ((x - this.gridX) / this.cellWidth)));
+	}
+
+	private int row(float y) {
+		return Math.max(0, Math.min(this.rows - 1,
+				(int) ((y - this.gridY) / this.cellHeight)));
+	}
+
+	private float getMinX(int candidate) {
+		if (candidate >= 0) {
+			final int INDEX = candidate * 4;
+			return Math.min(this.segments[INDEX], this.segments[INDEX + 2]);
+		}
+		final int INDEX = -(candidate + 1) * 3;
+		return this.circles[INDEX] - this.circles[INDEX + 2];
+	}
+
+	private float getMinY(int candidate) {
+		if (candidate >= 0) {
+			final int INDEX = candidate * 4;
+			return Math.min(this.segments[INDEX + 1], this.segments[INDEX + 3]);
+		}
+		final int INDEX = -(candidate + 1) * 3;
+		return this.circles[INDEX + 1] - this.circles[INDEX + 2];
+	}
+
+	private float getMaxX(int candidate) {
+		if (candidate >= 0) {
+			final int INDEX = candidate * 4;
+			return Math.max(this.segments[INDEX], this.segments[INDEX + 2]);
+		}
+		final int INDEX = -(candidate + 1) * 3;
+		return this.circles[INDEX] + this.circles[INDEX + 2];
+	}
+
+	private float getMaxY(int candidate) {
+		if (candidate >= 0) {
+			final int INDEX = candidate * 4;
+			return Math.max(this.segments[INDEX + 1], this.segments[INDEX + 3]);
+		}
+		final int INDEX = -(candidate + 1) * 3;
+		return this.circles[INDEX + 1] + this.circles[INDEX + 2];
+	}
+
+	private void addFixture(Fixture fixture, Transform transform) {
+		switch (fixture.getType()) {
+		case Polygon: {
+			final PolygonShape SHAPE = (PolygonShape) fixture.getShape();
+			final int COUNT = SHAPE.getVertexCount();
+			SHAPE.getVertex(0, this.FIRST);
+			transform.mul(this.FIRST);
+			this.PREVIOUS.set(this.FIRST);
+			for (int i = 1; i < COUNT; i++) {
+				SHAPE.getVertex(i, this.VERTEX);
+				transform.mul(this.VERTEX);
+				addSegment(this.PREVIOUS, this.VERTEX, false);
+				this.PREVIOUS.set(this.VERTEX);
+			}
+			addSegment(this.PREVIOUS, this.FIRST, false);
+			break;
+		}
+		case Chain: {
+			// a loop repeats its first vertex at the end
+			final ChainShape SHAPE = (ChainShape) fixture.getShape();
+			final int COUNT = SHAPE.getVertexCount();
+			SHAPE.getVertex(0, this.PREVIOUS);
+			transform.mul(this.PREVIOUS);
+			for (int i = 1; i < COUNT; i++) {
+				SHAPE.getVertex(i, this.VERTEX);
+				transform.mul(this.VERTEX);
+				addSegment(this.PREVIOUS, this.VERTEX, true);
+				this.PREVIOUS.set(this.VERTEX);
+			}
+			break;
+		}
+		case Edge: {
+			final EdgeShape SHAPE = (EdgeShape) fixture.getShape();
+			SHAPE.getVertex1(this.PREVIOUS);
+			SHAPE.getVertex2(this.VERTEX);
+			transform.mul(this.PREVIOUS);
+			transform.mul(this.VERTEX);
+			addSegment(this.PREVIOUS, this.VERTEX, true);
+			break;
+		}
+		case Circle: {
+			final CircleShape SHAPE = (CircleShape) fixture.getShape();
+			this.VERTEX.set(SHAPE.getPosition());
+			transform.mul(this.VERTEX);
+			addCircle(this.VERTEX.x, this.VERTEX.y, SHAPE.getRadius());
+			break;
+		}
+		}
+	}
+
+	private void addSegment(Vector2 a, Vector2 b, boolean twoSided) {
+		if (this.segmentCount * 4 == this.segments.length) {
+			final float[] SEGMENTS = new float[this.segments.length * 2];
+			System.arraycopy(this.segments, 0, SEGMENTS, 0,
+					this.segments.length);
+			this.segments = SEGMENTS;
+			final boolean[] TWOSIDED = new boolean[this.twoSided.length * 2];
+			System.arraycopy(this.twoSided, 0, TWOSIDED, 0,
+					this.twoSided.length);
+			this.twoSided = TWOSIDED;
+		}
+
+		final int INDEX = this.segmentCount * 4;
+		this.segments[INDEX] = a.x;
+		this.segments[INDEX + 1] = a.y;
+		this.segments[INDEX + 2] = b.x;
+		this.segments[INDEX + 3] = b.y;
+		this.twoSided[this.segmentCount++] = twoSided;
+	}
+
+	private void addCircle(float x, float y, float radius) {
+		if (this.circleCount * 3 == this.circles.length) {
+			final float[] CIRCLES = new float[this.circles.length * 2];
+			System.arraycopy(this.circles, 0, CIRCLES, 0, this.circles.length);
+			this.circles = CIRCLES;
+		}
+
+		final int INDEX = this.circleCount * 3;
+		this.circles[INDEX] = x;
+		this.circles[INDEX + 1] = y;
+		this.circles[INDEX + 2] = radius;
+		this.circleCount++;
+	}
+
+	/**
+	 * Collects the segments and circles that overlap the area, segments as
+	 * their index and circles as -(index + 1).
+	 *
+	 * @return the buffer, grown if it was too small
+	 */
+	public int[] query(float minX, float minY, float maxX, float maxY,
+			int[] buffer, int[] count) {
+		int size = 0;
+		if (this.columns > 0) {
+			final int COLUMN = column(minX);
+			final int LASTCOLUMN = column(maxX);
+			for (int y = row(minY); y <= row(maxY); y++) {
+				for (int x = COLUMN; x <= LASTCOLUMN; x++) {
+					final int CELL = y * this.columns + x;
+					final int END = this.cellStart[CELL + 1];
+					for (int i = this.cellStart[CELL]; i < END; i++) {
+						final int CANDIDATE = this.cellItems[i];
+						if (getMaxX(CANDIDATE) < minX
+								|| getMinX(CANDIDATE) > maxX
+								|| getMaxY(CANDIDATE) < minY
+								|| getMinY(CANDIDATE) > maxY) {
+							continue;
+						}
+
+						if (size == buffer.length) {
+							buffer = grow(buffer);
+						}
+						buffer[size++] = CANDIDATE;
+					}
+				}
+			}
+		}
+
+		// a shape is in every cell it overlaps, the sorted order also keeps
+		// the descriptions of equal areas equal
+		Arrays.sort(buffer, 0, size);
+		int unique = 0;
+		for (int i = 0; i < size; i++) {
+			if (unique == 0 || buffer[i] != buffer[unique - 1]) {
+				buffer[unique++] = buffer[i];
+			}
+		}
+
+		count[0] = unique;
+		return buffer;
+	}
+
+	private static int[] grow(int[] buffer) {
+		final int[] BUFFER = new int[Math.max(16, buffer.length * 2)];
+		System.arraycopy(buffer, 0, BUFFER, 0, buffer.length);
+		return BUFFER;
+	}
+
+	/**
+	 * Writes the shapes of the candidates of {@link #query} into the array,
+	 * five floats each. Areas with the same description block the same rays.
+	 *
+	 * @return the array, grown if it was too small
+	 */
+	public float[] describe(int[] candidates, int count, float[] shapes,
+			int[] size) {
+		if (shapes.length < count * 5) {
+			shapes = new float[count * 5];
+		}
+
+		int index = 0;
+		for (int i = 0; i < count; i++) {
+			final int CANDIDATE = candidates[i];
+			if (CANDIDATE >= 0) {
+				final int SEGMENT = CANDIDATE * 4;
+				shapes[index++] = this.twoSided[CANDIDATE] ? 1 : 0;
+				shapes[index++] = this.segments[SEGMENT];
+				shapes[index++] = this.segments[SEGMENT + 1];
+				shapes[index++] = this.segments[SEGMENT + 2];
+				shapes[index++] = this.segments[SEGMENT + 3];
+			} else {
+				final int CIRCLE = -(CANDIDATE + 1) * 3;
+				shapes[index++] = 2;
+				shapes[index++] = this.circles[CIRCLE];
+				shapes[index++] = this.circles[CIRCLE + 1];
+				shapes[index++] = this.circles[CIRCLE + 2];
+				shapes[index++] = 0;
+			}
+		}
+
+		size[0] = index;
+		return shapes;
+	}
+
+	/**
+	 * Casts the ray from (x, y) by (dx, dy) against the candidates of
+	 * {@link #query}.
+	 *
+	 * @return fraction of the ray to the closest hit, 1 without hit
+	 */
+	public float rayCast(float x, float y, float dx, float dy,
+			int[] candidates, int count) {
+		float best = 1f;
+		for (int i = 0; i < count; i++) {
+			final int CANDIDATE = candidates[i];
+			if (CANDIDATE >= 0) {
+				final int INDEX = CANDIDATE * 4;
+				final float AX = this.segments[INDEX];
+				final float AY = this.segments[INDEX + 1];
+				final float EX = this.segments[INDEX + 2] - AX;
+				final float EY = this.segments[INDEX + 3] - AY;
+
+				// < 0: the ray enters a counter clockwise polygon
+				final float DENOM = dx * EY - dy * EX;
+				if (DENOM == 0 || DENOM > 0 && !this.twoSided[CANDIDATE]) {
+					continue;
+				}
+
+				final float PX = AX - x;
+				final float PY = AY - y;
+				final float T = (PX * EY - PY * EX) / DENOM;
+				if (T < 0 || T >= best) {
+					continue;
+				}
+				final float U = (PX * dy - PY * dx) / DENOM;
+				if (U < 0 || U > 1) {
+					continue;
+				}
+				best = T;
+			} else {
+				final int INDEX = -(CANDIDATE + 1) * 3;
+				final float SX = x - this.circles[INDEX];
+				final float SY = y - this.circles[INDEX + 1];
+				final float RADIUS = this.circles[INDEX + 2];
+
+				final float B = SX * SX + SY * SY - RADIUS * RADIUS;
+				if (B < 0) {
+					continue; // starts inside
+				}
+				final float C = SX * dx + SY * dy;
+				final float RR = dx * dx + dy * dy;
+				final float SIGMA = C * C - RR * B;
+				if (SIGMA < 0 || RR == 0) {
+					continue;
+				}
+
+				final float T = -(C + (float) Math.sqrt(SIGMA)) / RR;
+				if (T >= 0 && T < best) {
+					best = T;
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,91 @@
+package com.jemge.box2d.box2dLight;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.jemge.j2d.culling.DynamicTree;
+import com.jemge.j2d.culling.TreeBasedCulling;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * The lights of a {@link RayHandler} in a {@link DynamicTree}, by the
+ * bounding box of their circle. A light is moved in the tree when it updates,
+ * so the tree is as up to date as the rays {@link Light#contains} tests.
+ * Directional lights light everything and are kept in a list.
+ */
+
+class LightIndex {
+	private final DynamicTree<Light> TREE = new DynamicTree<Light>();
+	private final Array<Light> GLOBAL = new Array<Light>(false, 4);
+	private final ArrayList<Light> CANDIDATES = new ArrayList<Light>(16);
+	private final Rectangle BOUNDS = new Rectangle();
+
+	void add(Light light) {
+		if (light.indexProxy != DynamicTree.NULL_NODE
+				|| this.GLOBAL.contains(light, true)) {
+			return;
+		}
+
+		if (light instanceof PositionalLight) {
+			light.indexProxy = this.TREE.createProxy(bounds(light),
+					TreeBasedCulling.fatMargin, light);
+		} else {
+			this.GLOBAL.add(light);
+		}
+	}
+
+	void move(Light light) {
+		if (light.indexProxy != DynamicTree.NULL_NODE) {
+			this.TREE.moveProxy(light.indexProxy, bounds(light),
+					TreeBasedCulling.fatMargin);
+		}
+	}
+
+	void remove(Light light) {
+		if (light.indexProxy != DynamicTree.NULL_NODE) {
+			this.TREE.destroyProxy(light.indexProxy);
+			light.indexProxy = DynamicTree.NULL_NODE;
+		} else {
+			this.GLOBAL.removeValue(light, true);
+		}
+	}
+
+	private Rectangle bounds(Light light) {
+		final float RADIUS = light.distance + light.softShadowLenght;
+		return this.BOUNDS.set(light.getX() - RADIUS, light.getY() - RADIUS,
+				RADIUS * 2, RADIUS * 2);
+	}
+
+	boolean contains(float x, float y) {
+		for (int i = 0; i < this.GLOBAL.size; i++) {
+			if (this.GLOBAL.get(i).contains(x, y)) {
+				return true;
+			}
+		}
+
+		this.CANDIDATES.clear();
+		this.TREE.query(this.BOUNDS.set(x, y, 0, 0), this.CANDIDATES);
+		for (int i = 0, size = this.CANDIDATES.size(); i < size; i++) {
+			if (this.CANDIDATES.get(i).contains(x, y)) {
+				this.CANDIDATES.clear();
+				return true;
+			}
+		}
+		this.CANDIDATES.clear();
+		return false;
+	}
+
+	/**
+	 * Sets bit i of the result for every lit point i, points are stored as x,
+	 * y pairs.
+	 */
+	void contains(float[] points, int count, BitSet result) {
+		result.clear();
+		for (int i = 0; i < count; i++) {
+			if (contains(points[i * 2], points[i * 2 + 1])) {
+				result.set(i);
+			}
+		}
+	}
+}
@@ -23,16 +23,42 @@ public class LightMap {
 	private ShaderProgram shadowShader;
 	private ShaderProgram withoutShadowShader;
 
+	// uniforms are only set when they change
+	private final ShaderUniforms BLURUNIFORMS;
+	private final int DIR;
+	private final int FBO_W;
+	private final int FBO_H;
+	private final int ISDIFFUSE;
+	private final int CENTERLIGHT;
+
+	// dual filter blur, a chain of buffers with half the size each
+	private ShaderUniforms downUniforms;
+	private ShaderUniforms upUniforms;
+	private int downHalfPixel;
+	private int upHalfPixel;
+	private FrameBuffer[] chain = new FrameBuffer[0];
+
 	protected boolean lightMapDrawingDisabled;
 
 	private int fboWidth;
 	private int fboHeight;
 
 	public void render() {
+		// cached across the passes of a frame, not across a lost context
+		this.BLURUNIFORMS.reset();
+		if (this.downUniforms != null) {
+			this.downUniforms.reset();
+			this.upUniforms.reset();
+		}
+
 		boolean needed = this.rayHandler.lightRenderedLastFrame > 0;
 		// this way lot less binding
 		if (needed && this.rayHandler.blur) {
-			gaussianBlur();
+			if (this.rayHandler.dualBlur) {
+				dualBlur();
+			} else {
+				gaussianBlur();
+			}
 		}
 
 		if (this.lightMapDrawingDisabled) {
@@ -72,24 +98,22 @@ public class LightMap {
 
 	public void gaussianBlur() {
 		Gdx.gl20.glDisable(GL20.GL_BLEND);
+		this.blurShader.begin();
+		this.BLURUNIFORMS.setUniformf(this.FBO_W, (float) this.fboWidth);
+		this.BLURUNIFORMS.setUniformf(this.FBO_H, (float) this.fboHeight);
+		this.BLURUNIFORMS.setUniformi(this.ISDIFFUSE, RayHandler.isDiffuse ? 1
+				: 0);
+		this.BLURUNIFORMS.setUniformi(this.CENTERLIGHT,
+				Light.centerLight ? 1 : 0);
+
 		for (int i = 0; i < this.rayHandler.blurNum; i++) {
 			this.frameBuffer.getColorBufferTexture().bind(0);
 			// horizontal
 			this.pingPongBuffer.begin();
 			{
-				this.blurShader.begin();
-				// blurShader.setUniformi("u_texture", 0);
-				this.blurShader.setUniformf("dir", 1f, 0f);
-				// TODO wird benötigt?
-				this.blurShader.setUniformf("FBO_W", (float) this.fboWidth);
-				this.blurShader.setUniformf("FBO_H", (float) this.fboHeight);
-				this.blurShader.setUniformi("isDiffuse",
-						RayHandler.isDiffuse ? 1 : 0);
-				this.blurShader.setUniformi("centerLight",
-						Light.centerLight ? 1 : 0);
+				this.BLURUNIFORMS.setUniformf(this.DIR, 1f, 0f);
 				this.lightMapMesh.render(this.blurShader, GL20.GL_TRIANGLE_FAN,
 						0, 4);
-				this.blurShader.end();
 			}
 			this.pingPongBuffer.end();
 
@@ -97,25 +121,90 @@ public class LightMap {
 			// vertical
 			this.frameBuffer.begin();
 			{
-				this.blurShader.begin();
-				// blurShader.setUniformi("u_texture", 0);
-				this.blurShader.setUniformf("dir", 0f, 1f);
-				this.blurShader.setUniformf("FBO_W", (float) this.fboWidth);
-				this.blurShader.setUniformf("FBO_H", (float) this.fboHeight);
-				this.blurShader.setUniformi("isDiffuse",
-						RayHandler.isDiffuse ? 1 : 0);
-				this.blurShader.setUniformi("centerLight",
-						Light.centerLight ? 1 : 0);
+				this.BLURUNIFORMS.setUniformf(this.DIR, 0f, 1f);
 				this.lightMapMesh.render(this.blurShader, GL20.GL_TRIANGLE_FAN,
 						0, 4);
-				this.blurShader.end();
 			}
 			this.frameBuffer.end();
 		}
 
+		this.blurShader.end();
+		Gdx.gl20.glEnable(GL20.GL_BLEND);
+	}
+
+	/**
+	 * Dual filter blur: the light map is scaled down blurNum times to half
+	 * its size and back up again. Every tap sits between texels, so the
+	 * linear filter averages four of them per fetch. Bigger radii cost less
+	 * than more gaussian passes, as most passes draw into small buffers.
+	 */
+	public void dualBlur() {
+		final int LEVELS = this.rayHandler.blurNum;
+		if (LEVELS <= 0) {
+			return;
+		}
+		if (this.downUniforms == null) {
+			this.downUniforms = new ShaderUniforms(
+					Shader.createShader("dualdown"));
+			this.downHalfPixel = this.downUniforms.register("halfPixel");
+			this.upUniforms = new ShaderUniforms(Shader.createShader("dualup"));
+			this.upHalfPixel = this.upUniforms.register("halfPixel");
+		}
+		if (this.chain.length < LEVELS) {
+			createChain(LEVELS);
+		}
+
+		Gdx.gl20.glDisable(GL20.GL_BLEND);
+		FrameBuffer source = this.frameBuffer;
+
+		final ShaderProgram DOWN = this.downUniforms.getShader();
+		DOWN.begin();
+		for (int i = 0; i < LEVELS; i++) {
+			source.getColorBufferTexture().bind(0);
+			this.downUniforms.setUniformf(this.downHalfPixel,
+					0.5f / source.getWidth(), 0.5f / source.getHeight());
+			this.chain[i].begin();
+			this.lightMapMesh.render(DOWN, GL20.GL_TRIANGLE_FAN, 0, 4);
+			this.chain[i].end();
+			source = this.chain[i];
+		}
+		DOWN.end();
+
+		final ShaderProgram UP = this.upUniforms.getShader();
+		UP.begin();
+		for (int i = LEVELS - 1; i >= 0; i--) {
+			final FrameBuffer TARGET = i == 0 ? this.frameBuffer
+					: this.chain[i - 1];
+			source.getColorBufferTexture().bind(0);
+			this.upUniforms.setUniformf(this.upHalfPixel,
+					0.5f / source.getWidth(), 0.5f / source.getHeight());
+			TARGET.begin();
+			this.lightMapMesh.render(UP, GL20.GL_TRIANGLE_FAN, 0, 4);
+			TARGET.end();
+			source = TARGET;
+		}
+		UP.end();
+
 		Gdx.gl20.glEnable(GL20.GL_BLEND);
 	}
 
+	private void createChain(int levels) {
+		disposeChain();
+		this.chain = new FrameBuffer[levels];
+		for (int i = 0; i < levels; i++) {
+			this.chain[i] = new FrameBuffer(Format.RGBA8888, Math.max(1,
+					this.frameBuffer.getWidth() >> i + 1), Math.max(1,
+					this.frameBuffer.getHeight() >> i + 1), false);
+		}
+	}
+
+	private void disposeChain() {
+		for (int i = 0; i < this.chain.length; i++) {
+			this.chain[i].dispose();
+		}
+		this.chain = new FrameBuffer[0];
+	}
+
 	public LightMap(RayHandler rayHandler, int fboWidth, int fboHeight) {
 		this.rayHandler = rayHandler;
 		this.fboWidth = fboWidth;
@@ -140,6 +229,12 @@ public class LightMap {
 		this.withoutShadowShader = Shader.createShader("withoutshadow");
 
 		this.blurShader = Shader.createShader("gaussian");
+		this.BLURUNIFORMS = new ShaderUniforms(this.blurShader);
+		this.DIR = this.BLURUNIFORMS.register("dir");
+		this.FBO_W = this.BLURUNIFORMS.register("FBO_W");
+		this.FBO_H = this.BLURUNIFORMS.register("FBO_H");
+		this.ISDIFFUSE = this.BLURUNIFORMS.register("isDiffuse");
+		this.CENTERLIGHT = this.BLURUNIFORMS.register("centerLight");
 	}
 
 	// TODO public or protected?
@@ -149,6 +244,11 @@ public class LightMap {
 		this.lightMapMesh.dispose();
 		this.frameBuffer.dispose();
 		this.pingPongBuffer.dispose();
+		disposeChain();
+		if (this.downUniforms != null) {
+			this.downUniforms.getShader().dispose();
+			this.upUniforms.getShader().dispose();
+		}
 	}
 
 	private Mesh createLightMapMesh() {
@@ -40,6 +40,11 @@ public class PointLight extends PositionalLight {
 	public void setDirection(float directionDegree) {
 	}
 
+	@Override
+	protected void raysChanged() {
+		setEndPoints();
+	}
+
 	/**
 	 * setDistance(float dist) MIN capped to 1cm
 	 * 
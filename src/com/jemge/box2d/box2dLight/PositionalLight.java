@@ -9,8 +9,15 @@ import com.badlogic.gdx.graphics.VertexAttributes.Usage;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
+import com.jemge.box2d.Physics2D;
 import com.jemge.j2d.IEntity;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public abstract class PositionalLight extends Light {
 	private Body body;
 	private IEntity entity;
@@ -20,9 +27,52 @@ public abstract class PositionalLight extends Light {
 	protected final float[] COS;
 
 	private final Vector2 START = new Vector2();
+	private final Vector2 BODYPOSITION = new Vector2();
 	protected final float[] ENDX;
 	protected final float[] ENDY;
 
+	private final RecursiveAction RAYTASK;
+	private LightGeometry geometry;
+	private int[] candidates = new int[64];
+	private final int[] CANDIDATECOUNT = new int[1];
+
+	// what the rays were cast against last time, for the ray cache
+	private float[] shapes = new float[64];
+	private float[] cachedShapes = new float[64];
+	private int cachedShapeSize = -1;
+	private final int[] SHAPESIZE = new int[1];
+	private int cachedRayNum;
+
+	// state of the last update, for the dirty tracking
+	private float lastX;
+	private float lastY;
+	private float lastDirection;
+	private float lastDistance;
+	private float lastColorF;
+	private float lastSoftShadowLenght;
+	private int lastRayNum;
+	private boolean lastSoft;
+	private boolean lastXray;
+	private boolean areaMoving = false;
+	private boolean wasAreaMoving = false;
+
+	private final QueryCallback AREA = new QueryCallback() {
+		@Override
+		public boolean reportFixture(Fixture fixture) {
+			final Body BODY = fixture.getBody();
+			if (BODY.getType() != BodyType.StaticBody && BODY.isAwake()) {
+				PositionalLight.this.areaMoving = true;
+				return false;
+			}
+			return true;
+		}
+	};
+	private float cachedX;
+	private float cachedY;
+	private final float[] CACHEDENDX;
+	private final float[] CACHEDENDY;
+	boolean rayCacheHit = false;
+
 	/**
 	 * attach positional light to automatically follow body. Position is fixed
 	 * to given offset.
@@ -94,10 +144,23 @@ public abstract class PositionalLight extends Light {
 
 	@Override
 	public void update() {
-		final Vector2 TMPEND = new Vector2();
+		if (beginUpdate()) {
+			castRays(this.rayHandler.currentGeometry());
+			finishUpdate();
+		}
+	}
+
+	/**
+	 * Follows the body or entity and culls the light.
+	 * 
+	 * @return true if the rays have to be cast
+	 */
+	boolean beginUpdate() {
 		if (this.body != null && !this.staticLight) {
-			final Vector2 VEC = this.body.getPosition();
-			final float ANGLE = this.body.getAngle();
+			// between the last two steps, like the bodies are drawn
+			final Vector2 VEC = Physics2D.getInterpolatedPosition(this.body,
+					this.BODYPOSITION);
+			final float ANGLE = Physics2D.getInterpolatedAngle(this.body);
 			final float COS = MathUtils.cos(ANGLE);
 			final float SIN = MathUtils.sin(ANGLE);
 			final float DX = this.bodyOffsetX * COS - this.bodyOffsetY * SIN;
@@ -117,19 +180,181 @@ public abstract class PositionalLight extends Light {
 			this.START.y = VEC.y + DY;
 			setDirection(ANGLE * MathUtils.radiansToDegrees);
 		}
+		this.rayHandler.LIGHTINDEX.move(this);
 
 		if (this.rayHandler.culling) {
 			this.culled = ((!this.rayHandler.intersect(this.START.x,
 					this.START.y, this.distance + this.softShadowLenght)));
 			if (this.culled) {
-				return;
+				this.rayHandler.lightCulledLastFrame++;
+				// the world may change while nobody looks
+				this.dirty = true;
+				return false;
 			}
 		}
 
 		if (this.staticLight) {
+			return false;
+		}
+
+		final int RAYS = this.rayHandler.rayLod ? getLodRayNum()
+				: this.maxRayNum;
+		if (setActiveRayNum(RAYS)) {
+			raysChanged();
+		}
+
+		if (this.rayHandler.dirtyTracking && !isChanged(isAreaMoving())) {
+			this.rayHandler.lightUnchangedLastFrame++;
+			return false;
+		}
+
+		this.rayHandler.lightUpdatedLastFrame++;
+		return true;
+	}
+
+	/**
+	 * @return true if a body in the area of the light is awake, or was awake
+	 *         in the last update and may just have left the area
+	 */
+	private boolean isAreaMoving() {
+		final boolean WASMOVING = this.wasAreaMoving;
+		this.wasAreaMoving = false;
+		if (this.rayHandler.world != null && !this.xray) {
+			this.areaMoving = false;
+			this.rayHandler.world.QueryAABB(this.AREA, this.START.x
+					- this.distance, this.START.y - this.distance,
+					this.START.x + this.distance, this.START.y + this.distance);
+			this.wasAreaMoving = this.areaMoving;
+		}
+		return this.wasAreaMoving || WASMOVING;
+	}
+
+	/**
+	 * @return true if the light changed since the last update, or the world
+	 *         in its area may have
+	 */
+	private boolean isChanged(boolean areaMoving) {
+		return this.dirty || areaMoving || this.rayHandler.worldChanged
+				|| this.START.x != this.lastX
+				|| this.START.y != this.lastY
+				|| this.direction != this.lastDirection
+				|| this.distance != this.lastDistance
+				|| this.colorF != this.lastColorF
+				|| this.rayNum != this.lastRayNum || this.soft != this.lastSoft
+				|| this.xray != this.lastXray
+				|| this.softShadowLenght != this.lastSoftShadowLenght;
+	}
+
+	/**
+	 * Rays from the size of the light in the camera bounds: all rays when it
+	 * is as big as {@link RayHandler#lodFullSize} of the view, fewer when it
+	 * is smaller. Rounded to multiples of 4 so it doesn't change every frame.
+	 */
+	private int getLodRayNum() {
+		final float VIEW = Math.max(this.rayHandler.x2 - this.rayHandler.x1,
+				this.rayHandler.y2 - this.rayHandler.y1);
+		if (VIEW <= 0) {
+			return this.maxRayNum;
+		}
+
+		final float SIZE = 2 * this.distance / VIEW;
+		int rays = (int) Math.ceil(this.maxRayNum
+				* Math.min(1f, SIZE / this.rayHandler.lodFullSize));
+		rays = rays + 3 & ~3;
+		return Math.max(Math.min(this.rayHandler.lodMinRays, this.maxRayNum),
+				rays);
+	}
+
+	/**
+	 * Called when the number of rays changed, computes the directions of the
+	 * rays again.
+	 */
+	protected void raysChanged() {
+		setDirection(this.direction);
+	}
+
+	/**
+	 * Counts the rays and fills the meshes, on the GL thread.
+	 */
+	void finishUpdate() {
+		if (this.rayCacheHit) {
+			this.rayHandler.lightCachedLastFrame++;
+			// the meshes still hold the rays, only the colors may be new
+			if (this.colorF != this.lastColorF || this.soft != this.lastSoft
+					|| this.softShadowLenght != this.lastSoftShadowLenght) {
+				setMesh();
+			}
+		} else {
+			if (this.rayHandler.world != null && !this.xray
+					&& !this.rayHandler.gpuShadows) {
+				this.rayHandler.raycastsLastFrame += this.rayNum;
+			}
+			setMesh();
+		}
+
+		this.dirty = false;
+		this.lastX = this.START.x;
+		this.lastY = this.START.y;
+		this.lastDirection = this.direction;
+		this.lastDistance = this.distance;
+		this.lastColorF = this.colorF;
+		this.lastRayNum = this.rayNum;
+		this.lastSoft = this.soft;
+		this.lastXray = this.xray;
+		this.lastSoftShadowLenght = this.softShadowLenght;
+	}
+
+	/**
+	 * Casts the rays against the copy of the world, or against the world
+	 * itself if it is null. Doesn't touch Box2D or GL with a copy, so it can
+	 * run on a worker thread.
+	 */
+	void castRays(LightGeometry geometry) {
+		this.rayCacheHit = false;
+		if (this.rayHandler.gpuShadows) {
+			// full rays, the shadow map darkens what is behind obstacles
+			this.cachedShapeSize = -1;
+			for (int i = 0; i < this.rayNum; i++) {
+				this.f[i] = 1f;
+				this.mx[i] = this.START.x + this.ENDX[i];
+				this.my[i] = this.START.y + this.ENDY[i];
+			}
+			return;
+		}
+
+		if (geometry != null && !this.xray) {
+			this.candidates = geometry.query(this.START.x - this.distance,
+					this.START.y - this.distance, this.START.x + this.distance,
+					this.START.y + this.distance, this.candidates,
+					this.CANDIDATECOUNT);
+			final int COUNT = this.CANDIDATECOUNT[0];
+
+			if (this.rayHandler.rayCache) {
+				this.shapes = geometry.describe(this.candidates, COUNT,
+						this.shapes, this.SHAPESIZE);
+				if (isRayCacheValid()) {
+					this.rayCacheHit = true;
+					return;
+				}
+			}
+
+			for (int i = 0; i < this.rayNum; i++) {
+				final float F = geometry.rayCast(this.START.x, this.START.y,
+						this.ENDX[i], this.ENDY[i], this.candidates, COUNT);
+				this.f[i] = F;
+				this.mx[i] = this.START.x + F * this.ENDX[i];
+				this.my[i] = this.START.y + F * this.ENDY[i];
+			}
+
+			if (this.rayHandler.rayCache) {
+				storeRayCache();
+			}
 			return;
 		}
 
+		this.cachedShapeSize = -1;
+
+		final Vector2 TMPEND = new Vector2();
 		for (int i = 0; i < this.rayNum; i++) {
 			this.m_index = i;
 			this.f[i] = 1f;
@@ -141,48 +366,126 @@ public abstract class PositionalLight extends Light {
 				this.rayHandler.world.rayCast(this.RAY, this.START, TMPEND);
 			}
 		}
-		setMesh();
 	}
 
-	// TODO private?
-	private void setMesh() {
-		// ray starting point
-		int size = 0;
+	/**
+	 * @return true if the light, its rays and the shapes in its area are the
+	 *         same as on the last cast
+	 */
+	private boolean isRayCacheValid() {
+		final int SIZE = this.SHAPESIZE[0];
+		if (SIZE != this.cachedShapeSize || !isSameRays()) {
+			return false;
+		}
+
+		for (int i = 0; i < SIZE; i++) {
+			if (this.shapes[i] != this.cachedShapes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isSameRays() {
+		if (this.rayNum != this.cachedRayNum || this.START.x != this.cachedX
+				|| this.START.y != this.cachedY) {
+			return false;
+		}
 
-		this.segments[size++] = this.START.x;
-		this.segments[size++] = this.START.y;
-		this.segments[size++] = this.colorF;
-		this.segments[size++] = 1;
-		// rays ending points.
 		for (int i = 0; i < this.rayNum; i++) {
-			this.segments[size++] = this.mx[i];
-			this.segments[size++] = this.my[i];
-			this.segments[size++] = this.colorF;
-			this.segments[size++] = 1 - this.f[i];
+			if (this.ENDX[i] != this.CACHEDENDX[i]
+					|| this.ENDY[i] != this.CACHEDENDY[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void storeRayCache() {
+		final float[] SHAPES = this.cachedShapes;
+		this.cachedShapes = this.shapes;
+		this.shapes = SHAPES;
+		this.cachedShapeSize = this.SHAPESIZE[0];
+		this.cachedRayNum = this.rayNum;
+		this.cachedX = this.START.x;
+		this.cachedY = this.START.y;
+		System.arraycopy(this.ENDX, 0, this.CACHEDENDX, 0, this.rayNum);
+		System.arraycopy(this.ENDY, 0, this.CACHEDENDY, 0, this.rayNum);
+	}
+
+	void forkRays(ForkJoinPool pool, LightGeometry geometry) {
+		this.geometry = geometry;
+		this.RAYTASK.reinitialize();
+		pool.execute(this.RAYTASK);
+	}
+
+	void joinRays() {
+		this.RAYTASK.join();
+		this.geometry = null;
+	}
+
+	void setMesh() {
+		if (this.rayHandler.mergedRendering && !this.rayHandler.gpuShadows
+				&& LightBatch.fits(this)) {
+			// the batch reads the rays when it draws
+			return;
 		}
-		this.lightMesh.setVertices(this.segments, 0, size);
 
-		if (!this.soft || this.xray) {
+		this.lightMesh.setVertices(this.segments, 0,
+				writeLight(this.segments, 0));
+
+		if (!this.soft || this.xray || this.rayHandler.gpuShadows) {
 			return;
 		}
 
-		size = 0;
+		this.softShadowMesh.setVertices(this.segments, 0,
+				writeSoftShadow(this.segments, 0));
+	}
+
+	/**
+	 * Writes the vertices of the light fan, the start and the ends of the
+	 * rays.
+	 * 
+	 * @return index after the last written float
+	 */
+	int writeLight(float[] vertices, int size) {
+		// ray starting point
+		vertices[size++] = this.START.x;
+		vertices[size++] = this.START.y;
+		vertices[size++] = this.colorF;
+		vertices[size++] = 1;
 		// rays ending points.
+		for (int i = 0; i < this.rayNum; i++) {
+			vertices[size++] = this.mx[i];
+			vertices[size++] = this.my[i];
+			vertices[size++] = this.colorF;
+			vertices[size++] = 1 - this.f[i];
+		}
+		return size;
+	}
 
+	/**
+	 * Writes the vertices of the soft shadow strip, the end of each ray and
+	 * its faded tip.
+	 * 
+	 * @return index after the last written float
+	 */
+	int writeSoftShadow(float[] vertices, int size) {
+		// rays ending points.
 		for (int i = 0; i < this.rayNum; i++) {
-			this.segments[size++] = this.mx[i];
-			this.segments[size++] = this.my[i];
-			this.segments[size++] = this.colorF;
+			vertices[size++] = this.mx[i];
+			vertices[size++] = this.my[i];
+			vertices[size++] = this.colorF;
 			final float s = (1 - this.f[i]);
-			this.segments[size++] = s;
-			this.segments[size++] = this.mx[i] + s * this.softShadowLenght
+			vertices[size++] = s;
+			vertices[size++] = this.mx[i] + s * this.softShadowLenght
 					* this.COS[i];
-			this.segments[size++] = this.my[i] + s * this.softShadowLenght
+			vertices[size++] = this.my[i] + s * this.softShadowLenght
 					* this.SIN[i];
-			this.segments[size++] = ZERO;
-			this.segments[size++] = 0f;
+			vertices[size++] = ZERO;
+			vertices[size++] = 0f;
 		}
-		this.softShadowMesh.setVertices(this.segments, 0, size);
+		return size;
 	}
 
 	@Override
@@ -201,6 +504,19 @@ public abstract class PositionalLight extends Light {
 		}
 	}
 
+	void render(LightBatch batch) {
+		if (!LightBatch.fits(this)) {
+			render();
+			return;
+		}
+		if (this.rayHandler.culling && this.culled) {
+			return;
+		}
+
+		this.rayHandler.lightRenderedLastFrame++;
+		batch.add(this);
+	}
+
 	public PositionalLight(int rays, Color color, float distance, float x,
 			float y, float directionDegree) {
 		super(rays, color, directionDegree, distance);
@@ -210,6 +526,14 @@ public abstract class PositionalLight extends Light {
 		this.COS = new float[rays];
 		this.ENDX = new float[rays];
 		this.ENDY = new float[rays];
+		this.CACHEDENDX = new float[rays];
+		this.CACHEDENDY = new float[rays];
+		this.RAYTASK = new RecursiveAction() {
+			@Override
+			protected void compute() {
+				castRays(PositionalLight.this.geometry);
+			}
+		};
 
 		this.lightMesh = new Mesh(VertexDataType.VertexArray, false,
 				this.vertexNum, 0, new VertexAttribute(Usage.Position, 2,
@@ -223,6 +547,8 @@ public abstract class PositionalLight extends Light {
 				new VertexAttribute(Usage.Generic, 1, "s"));
 
 		setMesh();
+		// not in the Light constructor, the index reads the position
+		this.rayHandler.LIGHTINDEX.add(this);
 	}
 
 	@Override
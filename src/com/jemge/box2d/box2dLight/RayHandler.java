@@ -6,6 +6,8 @@ package com.jemge.box2d.box2dLight;
  */
 
 import com.jemge.box2d.shaders.Shader;
+import com.jemge.core.debug.Metrics;
+import com.jemge.core.debug.Profiler;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
@@ -14,14 +16,56 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.physics.box2d.Filter;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
 public class RayHandler implements Disposable {
+	private static final int UPDATE = Profiler.register("RayHandler update");
+	private static final int RENDER = Profiler.register("RayHandler render");
+	private static final int SHADOWMAP = Profiler
+			.register("RayHandler shadow map");
+	private static final int GEOMETRY = Profiler
+			.register("RayHandler geometry");
+
+	private static final int LIGHTS_UPDATED = Metrics
+			.register("lights updated");
+	private static final int LIGHTS_CULLED = Metrics.register("lights culled");
+	private static final int LIGHTS_RENDERED = Metrics
+			.register("lights rendered");
+	private static final int LIGHTS_CACHED = Metrics.register("lights cached");
+	private static final int LIGHTS_UNCHANGED = Metrics
+			.register("lights unchanged");
+	private static final int RAYCASTS = Metrics.register("raycasts");
+	private static final int LIGHT_BATCHES = Metrics.register("light batches");
+	private static final int SHADOW_SHAPES = Metrics
+			.register("shadow map shapes");
+
 	protected boolean culling = true;
 	protected boolean shadows = true;
 	protected boolean blur = true;
+	protected boolean dualBlur = false;
+	protected boolean mergedRendering = false;
+	protected boolean rayLod = false;
+	protected boolean dirtyTracking = false;
+	protected boolean gpuShadows = false;
+	/**
+	 * true during an update if bodies or fixtures were created or destroyed,
+	 * or the contact filter was set since the last one
+	 */
+	boolean worldChanged = true;
+	private int lastBodyCount = -1;
+	private int lastFixtureCount = -1;
+	private Filter lastFilter;
+	protected int lodMinRays = 16;
+	protected float lodFullSize = 0.5f;
+
+	protected boolean parallelRaycasting = false;
+	protected boolean rayCache = false;
 
 	protected int blurNum = 1;
 	protected Color ambientLight = new Color();
@@ -47,6 +91,15 @@ public class RayHandler implements Disposable {
 
 	private LightMap lightMap;
 
+	private LightBatch lightBatch;
+	private ShadowMap shadowMap;
+	private ForkJoinPool rayPool;
+	private final LightGeometry LIGHTGEOMETRY = new LightGeometry();
+	private boolean geometryWanted = false;
+	private boolean geometryBuilt = false;
+	private final Array<PositionalLight> CASTING = new Array<PositionalLight>(
+			false, 16);
+
 	/**
 	 * This Array contain all the lights.
 	 * <p/>
@@ -59,11 +112,35 @@ public class RayHandler implements Disposable {
 	 * NOTE: DO NOT MODIFY THIS LIST
 	 */
 	public final Array<Light> DISABLEDLIGHTS = new Array<Light>(false, 16);
+	/**
+	 * the enabled lights by their bounds, for the point queries
+	 */
+	final LightIndex LIGHTINDEX = new LightIndex();
 
 	/**
 	 * how many lights passed culling and rendered to scene
 	 */
 	public int lightRenderedLastFrame = 0;
+	/**
+	 * how many lights were updated in the last frame
+	 */
+	public int lightUpdatedLastFrame = 0;
+	/**
+	 * how many lights were skipped by the culling in the last update
+	 */
+	public int lightCulledLastFrame = 0;
+	/**
+	 * how many lights reused the rays of the last update
+	 */
+	public int lightCachedLastFrame = 0;
+	/**
+	 * how many lights skipped the update because nothing changed
+	 */
+	public int lightUnchangedLastFrame = 0;
+	/**
+	 * how many rays were cast against the world in the last update
+	 */
+	public int raycastsLastFrame = 0;
 
 	/**
 	 * Construct handler that manages everything related to updating and
@@ -73,8 +150,8 @@ public class RayHandler implements Disposable {
 	 * Default setting: culling = true, shadows = true, blur =
 	 * true(GL2.0),blurNum = 1, ambientLight = 0.0f;
 	 * <p/>
-	 * NOTE1: rays number per lights are capped to 1023. For different size use
-	 * other constructor
+	 * NOTE1: with merged rendering, lights with more rays than fit into one
+	 * batch, about 5460 soft ones, are drawn on their own
 	 * <p/>
 	 * NOTE2: On GL 2.0 FBO size is 1/4 * screen size and used by default. For
 	 * different sizes use other constructor
@@ -196,10 +273,98 @@ public class RayHandler implements Disposable {
 	 * steps than rendering steps.
 	 */
 	public final void update() {
-		final int SIZE = this.LIGHTLIST.size;
-		for (int j = 0; j < SIZE; j++) {
-			this.LIGHTLIST.get(j).update();
+		final long START = Profiler.begin(UPDATE);
+		this.lightUpdatedLastFrame = 0;
+		this.lightCulledLastFrame = 0;
+		this.lightCachedLastFrame = 0;
+		this.lightUnchangedLastFrame = 0;
+		this.raycastsLastFrame = 0;
+
+		if (this.world != null) {
+			final int BODIES = this.world.getBodyCount();
+			final int FIXTURES = this.world.getFixtureCount();
+			this.worldChanged = BODIES != this.lastBodyCount
+					|| FIXTURES != this.lastFixtureCount
+					|| Light.filterA != this.lastFilter;
+			this.lastBodyCount = BODIES;
+			this.lastFixtureCount = FIXTURES;
+			this.lastFilter = Light.filterA;
+		}
+
+		this.geometryWanted = (this.parallelRaycasting || this.rayCache
+				|| this.gpuShadows) && this.world != null;
+		this.geometryBuilt = false;
+		if (this.gpuShadows) {
+			// the shadow map draws it in any case
+			currentGeometry();
+		}
+
+		if (this.parallelRaycasting && this.world != null) {
+			updateParallel();
+		} else {
+			for (int j = 0, size = this.LIGHTLIST.size; j < size; j++) {
+				this.LIGHTLIST.get(j).update();
+			}
+		}
+		this.geometryWanted = false;
+
+		Metrics.set(LIGHTS_UPDATED, this.lightUpdatedLastFrame);
+		Metrics.set(LIGHTS_CULLED, this.lightCulledLastFrame);
+		Metrics.set(LIGHTS_CACHED, this.lightCachedLastFrame);
+		Metrics.set(LIGHTS_UNCHANGED, this.lightUnchangedLastFrame);
+		Metrics.set(RAYCASTS, this.raycastsLastFrame);
+		Profiler.end(UPDATE, START);
+	}
+
+	/**
+	 * Copy of the world during {@link #update()}, built when the first light
+	 * needs it. A frame where no light updates doesn't copy the world.
+	 * 
+	 * @return null outside of {@link #update()} or when the rays are cast
+	 *         against the world itself
+	 */
+	LightGeometry currentGeometry() {
+		if (!this.geometryWanted) {
+			return null;
+		}
+		if (!this.geometryBuilt) {
+			final long START = Profiler.begin(GEOMETRY);
+			this.LIGHTGEOMETRY.build(this.world);
+			this.geometryBuilt = true;
+			Profiler.end(GEOMETRY, START);
+		}
+		return this.LIGHTGEOMETRY;
+	}
+
+	/**
+	 * Casts the rays of the positional lights on the pool, against the copy of
+	 * the world. The meshes are still filled here, on the GL thread.
+	 */
+	private void updateParallel() {
+		if (this.rayPool == null) {
+			this.rayPool = new ForkJoinPool();
+		}
+
+		for (int j = 0, size = this.LIGHTLIST.size; j < size; j++) {
+			final Light LIGHT = this.LIGHTLIST.get(j);
+			if (!(LIGHT instanceof PositionalLight)) {
+				LIGHT.update();
+				continue;
+			}
+
+			final PositionalLight POSITIONAL = (PositionalLight) LIGHT;
+			if (POSITIONAL.beginUpdate()) {
+				POSITIONAL.forkRays(this.rayPool, currentGeometry());
+				this.CASTING.add(POSITIONAL);
+			}
+		}
+
+		for (int j = 0; j < this.CASTING.size; j++) {
+			final PositionalLight POSITIONAL = this.CASTING.get(j);
+			POSITIONAL.joinRays();
+			POSITIONAL.finishUpdate();
 		}
+		this.CASTING.clear();
 	}
 
 	/**
@@ -221,11 +386,26 @@ public class RayHandler implements Disposable {
 		Gdx.gl.glEnable(GL20.GL_BLEND);
 		Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE);
 
+		final long START = Profiler.begin(RENDER);
 		renderWithShaders();
+		Metrics.set(LIGHTS_RENDERED, this.lightRenderedLastFrame);
+		Profiler.end(RENDER, START);
 	}
 
 	// TODO private?
 	private void renderWithShaders() {
+		if (this.gpuShadows) {
+			if (this.shadowMap == null) {
+				this.shadowMap = new ShadowMap();
+			}
+			final long START = Profiler.begin(SHADOWMAP);
+			this.shadowMap.build(this.LIGHTLIST,
+					this.world != null ? this.LIGHTGEOMETRY : null,
+					this.culling);
+			Metrics.set(SHADOW_SHAPES, this.shadowMap.shapesLastFrame);
+			Profiler.end(SHADOWMAP, START);
+		}
+
 		if (this.shadows || this.blur) {
 			this.lightMap.frameBuffer.begin();
 			Gdx.gl20.glClearColor(0f, 0f, 0f, 0f);
@@ -236,18 +416,55 @@ public class RayHandler implements Disposable {
 		{
 			this.lightShader.setUniformMatrix("u_projTrans", this.COMBINED);
 			this.lightShader.setUniformi("gamma", getGammaCorrection() ? 1 : 0);
-			for (int i = 0, size = this.LIGHTLIST.size; i < size; i++) {
-				this.LIGHTLIST.get(i).render();
+			if (this.gpuShadows) {
+				// lights without a shadow map row, like directional lights
+				for (int i = 0, size = this.LIGHTLIST.size; i < size; i++) {
+					if (this.LIGHTLIST.get(i).shadowRow < 0) {
+						this.LIGHTLIST.get(i).render();
+					}
+				}
+			} else if (this.mergedRendering) {
+				renderMerged();
+			} else {
+				for (int i = 0, size = this.LIGHTLIST.size; i < size; i++) {
+					this.LIGHTLIST.get(i).render();
+				}
 			}
 		}
 		this.lightShader.end();
 
+		if (this.gpuShadows) {
+			this.shadowMap.render(this.LIGHTLIST, this.COMBINED, this);
+		}
+
 		if (this.shadows || this.blur) {
 			this.lightMap.frameBuffer.end();
 			this.lightMap.render();
 		}
 	}
 
+	/**
+	 * Positional lights go into one batch, directional lights are still drawn
+	 * one by one. The lights are added up, so the order doesn't matter.
+	 */
+	private void renderMerged() {
+		if (this.lightBatch == null) {
+			this.lightBatch = new LightBatch();
+		}
+
+		this.lightBatch.begin(this.lightShader);
+		for (int i = 0, size = this.LIGHTLIST.size; i < size; i++) {
+			final Light LIGHT = this.LIGHTLIST.get(i);
+			if (LIGHT instanceof PositionalLight) {
+				((PositionalLight) LIGHT).render(this.lightBatch);
+			} else {
+				LIGHT.render();
+			}
+		}
+		this.lightBatch.end();
+		Metrics.set(LIGHT_BATCHES, this.lightBatch.drawCalls);
+	}
+
 	/**
 	 * Checks whether the given point is inside of any light volume.
 	 * 
@@ -256,12 +473,24 @@ public class RayHandler implements Disposable {
 	 * @return true if point intersect any light volume
 	 */
 	public boolean pointAtLight(float x, float y) {
-		for (int i = 0, size = this.LIGHTLIST.size; i < size; i++) {
-			if (this.LIGHTLIST.get(i).contains(x, y)) {
-				return true;
-			}
-		}
-		return false;
+		return this.LIGHTINDEX.contains(x, y);
+	}
+
+	/**
+	 * Checks many points at once, e.g. the positions of all agents.
+	 * 
+	 * @param points
+	 *            x, y pairs
+	 * @param count
+	 *            number of points
+	 * @param result
+	 *            gets bit i set if point i is inside of any light volume, all
+	 *            other bits are cleared. Unset bits are in shadow.
+	 * @return result
+	 */
+	public BitSet pointsAtLight(float[] points, int count, BitSet result) {
+		this.LIGHTINDEX.contains(points, count, result);
+		return result;
 	}
 
 	/**
@@ -272,12 +501,7 @@ public class RayHandler implements Disposable {
 	 * @return true if point intersect any light volume
 	 */
 	public boolean pointAtShadow(float x, float y) {
-		for (int i = 0, size = this.LIGHTLIST.size; i < size; i++) {
-			if (this.LIGHTLIST.get(i).contains(x, y)) {
-				return false;
-			}
-		}
-		return true;
+		return !this.LIGHTINDEX.contains(x, y);
 	}
 
 	private void alphaChannelClear() {
@@ -307,6 +531,18 @@ public class RayHandler implements Disposable {
 		if (this.lightShader != null) {
 			this.lightShader.dispose();
 		}
+		if (this.lightBatch != null) {
+			this.lightBatch.dispose();
+			this.lightBatch = null;
+		}
+		if (this.shadowMap != null) {
+			this.shadowMap.dispose();
+			this.shadowMap = null;
+		}
+		if (this.rayPool != null) {
+			this.rayPool.shutdown();
+			this.rayPool = null;
+		}
 	}
 
 	public void removeAll() {
@@ -366,6 +602,161 @@ public class RayHandler implements Disposable {
 		this.blur = blur;
 	}
 
+	/**
+	 * Casts the rays of the positional lights on several threads. The world is
+	 * copied once per update for that, as Box2D can't cast rays from more than
+	 * one thread. Worth it with many lights or rays.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param parallelRaycasting
+	 *            the parallelRaycasting to set
+	 */
+	public final void setParallelRaycasting(boolean parallelRaycasting) {
+		this.parallelRaycasting = parallelRaycasting;
+	}
+
+	/**
+	 * Keeps the rays of each positional light until the light moves or turns,
+	 * or a fixture in its area moves, appears or disappears. A light in a
+	 * room that doesn't change costs no raycasts, but still reacts when a door
+	 * opens, unlike a static light. The world is copied once per update to
+	 * compare the fixtures in the area of each light with the ones of its
+	 * last cast.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param rayCache
+	 *            the rayCache to set
+	 */
+	public final void setRayCache(boolean rayCache) {
+		this.rayCache = rayCache;
+	}
+
+	/**
+	 * Blurs the light map with a dual filter instead of the gaussian passes:
+	 * it is scaled down blurNum times to half its size and back up. Softer
+	 * for the same blurNum and cheaper for bigger radii, as most passes draw
+	 * into small buffers.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param dualBlur
+	 *            the dualBlur to set
+	 */
+	public final void setDualBlur(boolean dualBlur) {
+		this.dualBlur = dualBlur;
+	}
+
+	/**
+	 * Draws all positional lights with one streaming mesh, as indexed
+	 * triangles, instead of uploading and drawing two meshes per light. The
+	 * meshes of the lights aren't filled while this is on, except for lights
+	 * too big for one batch.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param mergedRendering
+	 *            the mergedRendering to set
+	 */
+	public final void setMergedRendering(boolean mergedRendering) {
+		if (this.mergedRendering == mergedRendering) {
+			return;
+		}
+		this.mergedRendering = mergedRendering;
+
+		if (!mergedRendering) {
+			// static lights don't update on their own
+			for (int i = 0; i < this.LIGHTLIST.size; i++) {
+				if (this.LIGHTLIST.get(i) instanceof PositionalLight) {
+					((PositionalLight) this.LIGHTLIST.get(i)).setMesh();
+				}
+			}
+			for (int i = 0; i < this.DISABLEDLIGHTS.size; i++) {
+				if (this.DISABLEDLIGHTS.get(i) instanceof PositionalLight) {
+					((PositionalLight) this.DISABLEDLIGHTS.get(i)).setMesh();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Picks the number of rays of each positional light per update from its
+	 * size in the camera bounds, up to the rays it was created with. Distant
+	 * or zoomed out lights cast fewer rays. Static lights keep all rays.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param rayLod
+	 *            the rayLod to set
+	 * @see #setRayLodLimits(int, float)
+	 */
+	public final void setRayLod(boolean rayLod) {
+		this.rayLod = rayLod;
+	}
+
+	/**
+	 * @param minRays
+	 *            fewest rays of a light, default = 16
+	 * @param fullSize
+	 *            diameter of a light with all of its rays, as part of the
+	 *            bigger side of the camera bounds, default = 0.5
+	 */
+	public final void setRayLodLimits(int minRays, float fullSize) {
+		this.lodMinRays = minRays;
+		this.lodFullSize = fullSize > 0 ? fullSize : 0.01f;
+	}
+
+	/**
+	 * Skips the raycasts and mesh uploads of positional lights whose
+	 * position, direction, distance, color, softness and ray count didn't
+	 * change, while no awake body is in their area and no body or fixture
+	 * was created or destroyed. Torches on sleeping bodies cost almost
+	 * nothing. Bodies moved with setTransform() without waking them up
+	 * aren't noticed.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param dirtyTracking
+	 *            the dirtyTracking to set
+	 */
+	public final void setDirtyTracking(boolean dirtyTracking) {
+		this.dirtyTracking = dirtyTracking;
+	}
+
+	/**
+	 * Casts the shadows of positional lights on the GPU instead of with
+	 * raycasts: the fixtures are copied once per update, every light gets a
+	 * row of a 1D shadow map and its light shader darkens what lies behind
+	 * the obstacles. The rays cost nothing on the CPU, the number of rays
+	 * only shapes the fan. Needs the min blend equation of desktop GL or
+	 * EXT_blend_minmax.
+	 * <p/>
+	 * The ray ends aren't shortened by obstacles, so pointAtLight and
+	 * pointAtShadow ignore the shadows. Directional lights still cast rays.
+	 * <p/>
+	 * default = false
+	 * 
+	 * @param gpuShadows
+	 *            the gpuShadows to set
+	 */
+	public final void setGpuShadows(boolean gpuShadows) {
+		if (this.gpuShadows == gpuShadows) {
+			return;
+		}
+		this.gpuShadows = gpuShadows;
+
+		// the rays have to be cast again
+		for (int i = 0; i < this.LIGHTLIST.size; i++) {
+			final Light LIGHT = this.LIGHTLIST.get(i);
+			LIGHT.shadowRow = -1;
+			LIGHT.dirty = true;
+			if (LIGHT.staticLight && LIGHT instanceof PositionalLight) {
+				LIGHT.staticUpdate();
+			}
+		}
+	}
+
 	/**
 	 * Set number of gaussian blur passes. Blurring can be pretty heavy weight
 	 * operation, 1-3 should be safe. Setting this to 0 is same as
@@ -0,0 +1,95 @@
+package com.jemge.box2d.box2dLight;
+
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+
+/**
+ * Sets the uniforms of a shader only when their value changed. A program
+ * keeps its uniforms until they are set again, so values like the FBO size
+ * are only sent once. Uniforms are registered once and set by their id, the
+ * shader has to be bound.
+ * <p/>
+ * A lost context recompiles the shader with all uniforms at 0, so the cache
+ * is {@link #reset()} once per frame.
+ */
+
+class ShaderUniforms {
+	private final ShaderProgram SHADER;
+	private int[] locations = new int[4];
+	private float[] values = new float[4 * 2];
+	private boolean[] set = new boolean[4];
+	private int uniforms = 0;
+
+	ShaderUniforms(ShaderProgram shader) {
+		this.SHADER = shader;
+	}
+
+	ShaderProgram getShader() {
+		return this.SHADER;
+	}
+
+	int getLocation(int uniform) {
+		return this.locations[uniform];
+	}
+
+	/**
+	 * @return id of the uniform, for up to two components
+	 */
+	int register(String name) {
+		if (this.uniforms == this.locations.length) {
+			final int SIZE = this.uniforms * 2;
+			final int[] LOCATIONS = new int[SIZE];
+			System.arraycopy(this.locations, 0, LOCATIONS, 0, this.uniforms);
+			this.locations = LOCATIONS;
+			final float[] VALUES = new float[SIZE * 2];
+			System.arraycopy(this.values, 0, VALUES, 0, this.uniforms * 2);
+			this.values = VALUES;
+			final boolean[] SET = new boolean[SIZE];
+			System.arraycopy(this.set, 0, SET, 0, this.uniforms);
+			this.set = SET;
+		}
+
+		this.locations[this.uniforms] = this.SHADER.fetchUniformLocation(name,
+				false);
+		return this.uniforms++;
+	}
+
+	void setUniformi(int uniform, int value) {
+		if (changed(uniform, value, 0)) {
+			this.SHADER.setUniformi(this.locations[uniform], value);
+		}
+	}
+
+	void setUniformf(int uniform, float value) {
+		if (changed(uniform, value, 0)) {
+			this.SHADER.setUniformf(this.locations[uniform], value);
+		}
+	}
+
+	void setUniformf(int uniform, float x, float y) {
+		if (changed(uniform, x, y)) {
+			this.SHADER.setUniformf(this.locations[uniform], x, y);
+		}
+	}
+
+	/**
+	 * Forgets the values, the next set of each uniform is sent.
+	 */
+	void reset() {
+		for (int i = 0; i < this.uniforms; i++) {
+			this.set[i] = false;
+		}
+	}
+
+	private boolean changed(int uniform, float x, float y) {
+		final int INDEX = uniform * 2;
+		if (this.set[uniform] && this.values[INDEX] == x
+				&& this.values[INDEX + 1] == y) {
+			return false;
+		}
+
+		this.set[uniform] = true;
+		this.values[INDEX] = x;
+		this.values[INDEX + 1] = y;
+		return this.locations[uniform] != -1;
+	}
+}
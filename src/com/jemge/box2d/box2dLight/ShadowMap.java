@@ -0,0 +1,282 @@
+package com.jemge.box2d.box2dLight;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.jemge.box2d.shaders.Shader;
+
+/**
+ * Shadows of positional lights on the GPU. Every light gets a row of a 1D
+ * shadow map, one texel per angle: the shapes of the {@link LightGeometry}
+ * around the light are drawn as quads over the row, the fragment shader
+ * intersects the ray of its texel with the shape and the closest hit wins
+ * by min blending. The light fans are cast without obstacles and the light
+ * shader darkens what lies behind the hit.
+ * <p/>
+ * Distances are stored with 8 bits, in parts of the light distance.
+ */
+
+class ShadowMap implements Disposable {
+	/**
+	 * texels per row, the angular resolution
+	 */
+	static final int RESOLUTION = 512;
+	/**
+	 * most shadowed lights per frame, more are drawn without shadows
+	 */
+	static final int MAX_ROWS = 1024;
+
+	// blend equation of EXT_blend_minmax, core in desktop GL
+	private static final int GL_MIN = 0x8007;
+	private static final float PI2 = 6.2831853072f;
+	private static final int VERTEX_SIZE = 7;
+	private static final int MAX_QUADS = 4096;
+
+	private final ShaderProgram MAPSHADER;
+	private final ShaderUniforms LIGHTUNIFORMS;
+	private final int PROJTRANS;
+	private final int GAMMA;
+	private final int CENTER;
+	private final int RADIUS;
+	private final int ROW;
+	private final int SOFTNESS;
+
+	private final Mesh MESH;
+	private final float[] VERTICES = new float[MAX_QUADS * 4 * VERTEX_SIZE];
+	private int quadCount = 0;
+
+	private FrameBuffer frameBuffer;
+	private int rows = 0;
+
+	private int[] candidates = new int[64];
+	private final int[] CANDIDATECOUNT = new int[1];
+	private float[] shapes = new float[64];
+	private final int[] SHAPESIZE = new int[1];
+
+	/**
+	 * shapes drawn into the map in the last build
+	 */
+	int shapesLastFrame = 0;
+
+	ShadowMap() {
+		this.MAPSHADER = Shader.createShader("shadowmap");
+		this.LIGHTUNIFORMS = new ShaderUniforms(
+				Shader.createShader("shadowlight"));
+		this.PROJTRANS = this.LIGHTUNIFORMS.register("u_projTrans");
+		this.GAMMA = this.LIGHTUNIFORMS.register("gamma");
+		this.CENTER = this.LIGHTUNIFORMS.register("center");
+		this.RADIUS = this.LIGHTUNIFORMS.register("radius");
+		this.ROW = this.LIGHTUNIFORMS.register("row");
+		this.SOFTNESS = this.LIGHTUNIFORMS.register("softness");
+
+		this.MESH = new Mesh(false, MAX_QUADS * 4, MAX_QUADS * 6,
+				new VertexAttribute(Usage.Position, 2, "a_position"),
+				new VertexAttribute(Usage.Generic, 4, "a_shape"),
+				new VertexAttribute(Usage.Generic, 1, "a_type"));
+
+		final short[] INDICES = new short[MAX_QUADS * 6];
+		for (int i = 0, vertex = 0; i < INDICES.length; i += 6, vertex += 4) {
+			INDICES[i] = (short) vertex;
+			INDICES[i + 1] = (short) (vertex + 1);
+			INDICES[i + 2] = (short) (vertex + 2);
+			INDICES[i + 3] = (short) (vertex + 2);
+			INDICES[i + 4] = (short) (vertex + 3);
+			INDICES[i + 5] = (short) vertex;
+		}
+		this.MESH.setIndices(INDICES);
+	}
+
+	/**
+	 * Draws the shadow map rows of all visible positional lights. Has to be
+	 * called outside of other frame buffers.
+	 */
+	void build(Array<Light> lights, LightGeometry geometry, boolean culling) {
+		int count = 0;
+		for (int i = 0; i < lights.size; i++) {
+			if (isShadowed(lights.get(i), culling)) {
+				count++;
+			}
+		}
+		ensureRows(Math.min(count, MAX_ROWS));
+		this.shapesLastFrame = 0;
+
+		this.frameBuffer.begin();
+		Gdx.gl20.glClearColor(1f, 1f, 1f, 1f);
+		Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
+		Gdx.gl20.glClearColor(0f, 0f, 0f, 0f);
+
+		Gdx.gl20.glEnable(GL20.GL_BLEND);
+		Gdx.gl20.glBlendEquation(GL_MIN);
+		this.MAPSHADER.begin();
+
+		int row = 0;
+		for (int i = 0; i < lights.size; i++) {
+			final Light LIGHT = lights.get(i);
+			LIGHT.shadowRow = -1;
+			if (row == this.rows || !isShadowed(LIGHT, culling)) {
+				continue;
+			}
+
+			LIGHT.shadowRow = (row + 0.5f) / this.rows;
+			if (geometry != null) {
+				addLight((PositionalLight) LIGHT, geometry, row);
+			}
+			row++;
+		}
+		flush();
+
+		this.MAPSHADER.end();
+		Gdx.gl20.glBlendEquation(GL20.GL_FUNC_ADD);
+		this.frameBuffer.end();
+	}
+
+	private static boolean isShadowed(Light light, boolean culling) {
+		return light instanceof PositionalLight && !light.xray
+				&& !(culling && light.culled);
+	}
+
+	private void ensureRows(int count) {
+		int rows = 1;
+		while (rows < count) {
+			rows *= 2;
+		}
+		if (this.frameBuffer != null && this.rows >= rows) {
+			return;
+		}
+
+		if (this.frameBuffer != null) {
+			this.frameBuffer.dispose();
+		}
+		this.rows = rows;
+		this.frameBuffer = new FrameBuffer(Format.RGBA8888, RESOLUTION, rows,
+				false);
+		this.frameBuffer.getColorBufferTexture().setFilter(
+				TextureFilter.Nearest, TextureFilter.Nearest);
+		// the angle wraps around, the rows don't
+		this.frameBuffer.getColorBufferTexture().setWrap(TextureWrap.Repeat,
+				TextureWrap.ClampToEdge);
+	}
+
+	private void addLight(PositionalLight light, LightGeometry geometry,
+			int row) {
+		final float X = light.getX();
+		final float Y = light.getY();
+		final float DISTANCE = light.distance;
+
+		this.candidates = geometry.query(X - DISTANCE, Y - DISTANCE, X
+				+ DISTANCE, Y + DISTANCE, this.candidates, this.CANDIDATECOUNT);
+		this.shapes = geometry.describe(this.candidates,
+				this.CANDIDATECOUNT[0], this.shapes, this.SHAPESIZE);
+
+		final float TOP = -1f + 2f * row / this.rows;
+		final float BOTTOM = -1f + 2f * (row + 1) / this.rows;
+		for (int i = 0; i < this.SHAPESIZE[0]; i += 5) {
+			if (this.quadCount == MAX_QUADS) {
+				flush();
+			}
+
+			final float TYPE = this.shapes[i];
+			final float A;
+			final float B;
+			final float C;
+			final float D;
+			if (TYPE < 2) {
+				A = (this.shapes[i + 1] - X) / DISTANCE;
+				B = (this.shapes[i + 2] - Y) / DISTANCE;
+				C = (this.shapes[i + 3] - X) / DISTANCE;
+				D = (this.shapes[i + 4] - Y) / DISTANCE;
+			} else {
+				A = (this.shapes[i + 1] - X) / DISTANCE;
+				B = (this.shapes[i + 2] - Y) / DISTANCE;
+				C = this.shapes[i + 3] / DISTANCE;
+				D = 0;
+			}
+
+			int index = this.quadCount * 4 * VERTEX_SIZE;
+			index = vertex(index, -1f, TOP, A, B, C, D, TYPE);
+			index = vertex(index, 1f, TOP, A, B, C, D, TYPE);
+			index = vertex(index, 1f, BOTTOM, A, B, C, D, TYPE);
+			vertex(index, -1f, BOTTOM, A, B, C, D, TYPE);
+			this.quadCount++;
+			this.shapesLastFrame++;
+		}
+	}
+
+	private int vertex(int index, float x, float y, float a, float b,
+			float c, float d, float type) {
+		this.VERTICES[index++] = x;
+		this.VERTICES[index++] = y;
+		this.VERTICES[index++] = a;
+		this.VERTICES[index++] = b;
+		this.VERTICES[index++] = c;
+		this.VERTICES[index++] = d;
+		this.VERTICES[index++] = type;
+		return index;
+	}
+
+	private void flush() {
+		if (this.quadCount == 0) {
+			return;
+		}
+
+		this.MESH.setVertices(this.VERTICES, 0, this.quadCount * 4
+				* VERTEX_SIZE);
+		this.MESH.render(this.MAPSHADER, GL20.GL_TRIANGLES, 0,
+				this.quadCount * 6);
+		this.quadCount = 0;
+	}
+
+	/**
+	 * Draws the fans of the lights with a row in the map, other lights are
+	 * left to the light shader.
+	 */
+	void render(Array<Light> lights, Matrix4 combined, RayHandler rayHandler) {
+		this.frameBuffer.getColorBufferTexture().bind(0);
+
+		final ShaderProgram SHADER = this.LIGHTUNIFORMS.getShader();
+		this.LIGHTUNIFORMS.reset();
+		SHADER.begin();
+		SHADER.setUniformMatrix(this.LIGHTUNIFORMS.getLocation(this.PROJTRANS),
+				combined);
+		this.LIGHTUNIFORMS.setUniformi(this.GAMMA,
+				RayHandler.getGammaCorrection() ? 1 : 0);
+
+		for (int i = 0, size = lights.size; i < size; i++) {
+			final Light LIGHT = lights.get(i);
+			if (LIGHT.shadowRow < 0) {
+				continue;
+			}
+
+			rayHandler.lightRenderedLastFrame++;
+			this.LIGHTUNIFORMS.setUniformf(this.CENTER, LIGHT.getX(),
+					LIGHT.getY());
+			this.LIGHTUNIFORMS.setUniformf(this.RADIUS, LIGHT.distance);
+			this.LIGHTUNIFORMS.setUniformf(this.ROW, LIGHT.shadowRow);
+			this.LIGHTUNIFORMS.setUniformf(this.SOFTNESS, LIGHT.soft ? 0.5f
+					* LIGHT.softShadowLenght / LIGHT.distance / PI2 : 0f);
+			LIGHT.lightMesh.render(SHADER, GL20.GL_TRIANGLE_FAN, 0,
+					LIGHT.vertexNum);
+		}
+		SHADER.end();
+	}
+
+	@Override
+	public void dispose() {
+		this.MAPSHADER.dispose();
+		this.LIGHTUNIFORMS.getShader().dispose();
+		this.MESH.dispose();
+		if (this.frameBuffer != null) {
+			this.frameBuffer.dispose();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+#ifdef GL_ES
+    precision lowp float;
+#define MED mediump
+#else
+#define MED
+#endif
+
+uniform sampler2D u_texture;
+varying MED vec2 v_texCoords;
+varying MED vec4 v_corners0;
+varying MED vec4 v_corners1;
+
+// every tap sits between four texels, the linear filter averages them
+void main()
+{
+    gl_FragColor = 0.5 * texture2D(u_texture, v_texCoords)
+                 + 0.125 * texture2D(u_texture, v_corners0.xy)
+                 + 0.125 * texture2D(u_texture, v_corners0.zw)
+                 + 0.125 * texture2D(u_texture, v_corners1.xy)
+                 + 0.125 * texture2D(u_texture, v_corners1.zw);
+}
\ No newline at end of file
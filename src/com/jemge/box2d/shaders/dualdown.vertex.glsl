@@ -0,0 +1,15 @@
+attribute vec4 a_position;
+attribute vec2 a_texCoord;
+uniform vec2 halfPixel;
+varying vec2 v_texCoords;
+varying vec4 v_corners0;
+varying vec4 v_corners1;
+
+void main()
+{
+    v_texCoords = a_texCoord;
+    v_corners0 = vec4(a_texCoord - halfPixel, a_texCoord + halfPixel);
+    v_corners1 = vec4(a_texCoord.x - halfPixel.x, a_texCoord.y + halfPixel.y,
+                      a_texCoord.x + halfPixel.x, a_texCoord.y - halfPixel.y);
+    gl_Position = a_position;
+}
\ No newline at end of file
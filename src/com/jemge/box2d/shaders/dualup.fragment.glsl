@@ -0,0 +1,27 @@
+#ifdef GL_ES
+    precision lowp float;
+#define MED mediump
+#else
+#define MED
+#endif
+
+uniform sampler2D u_texture;
+varying MED vec4 v_sides0;
+varying MED vec4 v_sides1;
+varying MED vec4 v_corners0;
+varying MED vec4 v_corners1;
+
+const float side = 0.0833333333;
+const float corner = 0.1666666667;
+
+void main()
+{
+    gl_FragColor = side * texture2D(u_texture, v_sides0.xy)
+                 + side * texture2D(u_texture, v_sides0.zw)
+                 + side * texture2D(u_texture, v_sides1.xy)
+                 + side * texture2D(u_texture, v_sides1.zw)
+                 + corner * texture2D(u_texture, v_corners0.xy)
+                 + corner * texture2D(u_texture, v_corners0.zw)
+                 + corner * texture2D(u_texture, v_corners1.xy)
+                 + corner * texture2D(u_texture, v_corners1.zw);
+}
\ No newline at end of file
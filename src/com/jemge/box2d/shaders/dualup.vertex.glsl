@@ -0,0 +1,20 @@
+attribute vec4 a_position;
+attribute vec2 a_texCoord;
+uniform vec2 halfPixel;
+varying vec4 v_sides0;
+varying vec4 v_sides1;
+varying vec4 v_corners0;
+varying vec4 v_corners1;
+
+void main()
+{
+    vec2 twice = halfPixel * 2.0;
+    v_sides0 = vec4(a_texCoord.x - twice.x, a_texCoord.y,
+                    a_texCoord.x + twice.x, a_texCoord.y);
+    v_sides1 = vec4(a_texCoord.x, a_texCoord.y - twice.y,
+                    a_texCoord.x, a_texCoord.y + twice.y);
+    v_corners0 = vec4(a_texCoord - halfPixel, a_texCoord + halfPixel);
+    v_corners1 = vec4(a_texCoord.x - halfPixel.x, a_texCoord.y + halfPixel.y,
+                      a_texCoord.x + halfPixel.x, a_texCoord.y - halfPixel.y);
+    gl_Position = a_position;
+}
\ No newline at end of file
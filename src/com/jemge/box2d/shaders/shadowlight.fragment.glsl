@@ -0,0 +1,44 @@
+#ifdef GL_ES
+    precision mediump float;
+#endif
+
+varying vec4 v_color;
+varying vec2 v_position;
+uniform sampler2D u_shadowMap;
+uniform vec2 center;
+uniform float radius;
+uniform float row;
+uniform float softness;
+uniform int gamma;
+
+const float PI2 = 6.2831853072;
+const float BIAS = 0.01;
+
+float lit(float x, float r)
+{
+    return step(r, texture2D(u_shadowMap, vec2(x, row)).r + BIAS);
+}
+
+void main()
+{
+    vec2 d = v_position - center;
+    float r = length(d) / radius;
+    float x = atan(d.y, d.x) / PI2;
+
+    // the penumbra grows with the distance to the light
+    float blur = softness * r;
+    float light = 0.4 * lit(x, r)
+                + 0.2 * lit(x - blur, r)
+                + 0.2 * lit(x + blur, r)
+                + 0.1 * lit(x - 2.0 * blur, r)
+                + 0.1 * lit(x + 2.0 * blur, r);
+
+    if(gamma == 1)
+    {
+        gl_FragColor = sqrt(v_color * light);
+    }
+    else
+    {
+        gl_FragColor = v_color * light;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+#ifdef GL_ES
+    precision mediump float;
+#endif
+
+// shape relative to the light, in parts of its distance:
+// a segment from xy to zw, or a circle at xy with radius z
+varying vec4 v_shape;
+// 0 segment blocking from outside, 1 segment blocking both sides, 2 circle
+varying float v_type;
+varying float v_angle;
+
+// distance to the closest hit along the ray of this texel, blended with min
+void main()
+{
+    vec2 dir = vec2(cos(v_angle), sin(v_angle));
+    float hit = 1.0;
+
+    if(v_type < 1.5)
+    {
+        vec2 e = v_shape.zw - v_shape.xy;
+        float denom = dir.x * e.y - dir.y * e.x;
+        if(denom < 0.0 || denom > 0.0 && v_type > 0.5)
+        {
+            float t = (v_shape.x * e.y - v_shape.y * e.x) / denom;
+            float u = (v_shape.x * dir.y - v_shape.y * dir.x) / denom;
+            if(t >= 0.0 && u >= 0.0 && u <= 1.0)
+            {
+                hit = min(hit, t);
+            }
+        }
+    }
+    else
+    {
+        vec2 s = -v_shape.xy;
+        float b = dot(s, s) - v_shape.z * v_shape.z;
+        float c = dot(s, dir);
+        float sigma = c * c - b;
+        if(b >= 0.0 && sigma >= 0.0)
+        {
+            float t = -(c + sqrt(sigma));
+            if(t >= 0.0)
+            {
+                hit = min(hit, t);
+            }
+        }
+    }
+
+    gl_FragColor = vec4(hit);
+}
\ No newline at end of file
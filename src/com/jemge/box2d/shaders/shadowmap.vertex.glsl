@@ -0,0 +1,14 @@
+attribute vec4 a_position;
+attribute vec4 a_shape;
+attribute float a_type;
+varying vec4 v_shape;
+varying float v_type;
+varying float v_angle;
+
+void main()
+{
+    v_shape = a_shape;
+    v_type = a_type;
+    v_angle = (a_position.x + 1.0) * 3.1415926536;
+    gl_Position = a_position;
+}
\ No newline at end of file
@@ -16,7 +16,9 @@
 
 package com.jemge.core;
 
+import com.badlogic.gdx.Gdx;
 import com.jemge.box2d.Physics2D;
+import com.jemge.core.debug.Metrics;
 import com.jemge.core.debug.Profiler;
 import com.jemge.input.InputManager;
 import com.jemge.j2d.JUIManager;
@@ -25,6 +27,7 @@ import com.jemge.resource.AudioManager;
 import com.jemge.resource.ResourceManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -37,99 +40,231 @@ import java.util.List;
 
 public class Engine {
 	private final List<EngineModule> MODULES;
+	private final HashMap<Class<?>, EngineModule> TYPES;
+	private final HashMap<String, EngineModule> NAMES;
+	private EngineModule[] updates = new EngineModule[0];
+	private int[] updateSections = new int[0];
+	private int[] updateMetrics = new int[0];
+	private final boolean HEADLESS;
+	private float deltaTime = 0;
 
 	public Engine() {
+		this(false);
+	}
+
+	/**
+	 * @param headless
+	 *            only build the simulation (Physics2D), without renderer,
+	 *            input, audio and UI. Needs no GL context, see {@link JServer}.
+	 */
+	public Engine(boolean headless) {
+		this.HEADLESS = headless;
 		this.MODULES = new ArrayList<>();
-		this.MODULES.add(new Physics2D());
-		this.MODULES.add(new InputManager());
-		this.MODULES.add(new ResourceManager());
-		this.MODULES.add(new JUIManager());
+		this.TYPES = new HashMap<>();
+		this.NAMES = new HashMap<>();
+		addModule(new Physics2D());
+		if (!headless) {
+			addModule(new InputManager());
+			addModule(new ResourceManager());
+			addModule(new JUIManager());
+		}
 
+		Jemge.engine = this;
 		for (EngineModule module : this.MODULES) {
 			module.init();
 		}
 
-		Jemge.engine = this;
-		Jemge.renderer2D = new Renderer2D();
-		Jemge.manager = getResourceManager();
-		Jemge.inputManager = getInputManager();
-		Jemge.audio = new AudioManager();
+		if (!headless) {
+			Jemge.renderer2D = new Renderer2D();
+			Jemge.manager = getResourceManager();
+			Jemge.inputManager = getInputManager();
+			Jemge.audio = new AudioManager();
+		} else {
+			Jemge.renderer2D = null;
+			Jemge.manager = null;
+			Jemge.inputManager = null;
+			Jemge.audio = null;
+		}
 		// game.setScreen(new Splash(game));
 	}
 
 	public void update() {
-		for (EngineModule module : this.MODULES) {
-			module.update();
+		update(Gdx.graphics.getDeltaTime());
+	}
+
+	/**
+	 * Updates all modules that need it, in the order of their dependencies.
+	 *
+	 * @param delta
+	 *            time since the last update in seconds
+	 */
+	public void update(float delta) {
+		Profiler.frame();
+		Metrics.frame();
+		this.deltaTime = delta;
+		final EngineModule[] UPDATES = this.updates;
+		final int[] SECTIONS = this.updateSections;
+		final int[] METRICS = this.updateMetrics;
+		for (int i = 0; i < UPDATES.length; i++) {
+			final long START = System.nanoTime();
+			UPDATES[i].update();
+			Metrics.set(METRICS[i], System.nanoTime() - START);
+			Profiler.end(SECTIONS[i], START);
 		}
 	}
 
+	/**
+	 * @return time in seconds of the current update
+	 */
+	public float getDeltaTime() {
+		return this.deltaTime;
+	}
+
+	public boolean isHeadless() {
+		return this.HEADLESS;
+	}
+
 	public void dispose() {
-		Jemge.renderer2D.dispose();
+		if (Jemge.renderer2D != null) {
+			Jemge.renderer2D.dispose();
+		}
 
-		for (EngineModule module : this.MODULES) {
-			module.dispose();
+		// dependencies last
+		for (int i = this.MODULES.size() - 1; i >= 0; i--) {
+			this.MODULES.get(i).dispose();
 		}
 
 		Profiler.getResults();
 	}
 
 	public Physics2D getPhysics2D() {
-		for (EngineModule module : this.MODULES) {
-			if (module instanceof Physics2D) {
-				return (Physics2D) module;
-			}
+		final Physics2D MODULE = getModule(Physics2D.class);
+		if (MODULE == null) {
+			throw new NullPointerException(
+					"Did not found the Physics2d Module, where is it?");
 		}
-
-		throw new NullPointerException(
-				"Did not found the Physics2d Module, where is it?");
+		return MODULE;
 	}
 
 	public InputManager getInputManager() {
-		for (EngineModule module : this.MODULES) {
-			if (module instanceof InputManager) {
-				return (InputManager) module;
-			}
+		final InputManager MODULE = getModule(InputManager.class);
+		if (MODULE == null) {
+			throw new NullPointerException(
+					"Did not found the InputManager, where is it?");
 		}
-
-		throw new NullPointerException(
-				"Did not found the InputManager, where is it?");
+		return MODULE;
 	}
 
 	public JUIManager getJUIManager() {
-		for (EngineModule module : this.MODULES) {
-			if (module instanceof JUIManager) {
-				return (JUIManager) module;
-			}
+		final JUIManager MODULE = getModule(JUIManager.class);
+		if (MODULE == null) {
+			throw new NullPointerException(
+					"Did not found the JUIManager, where is it?");
 		}
-
-		throw new NullPointerException(
-				"Did not found the InputManager, where is it?");
+		return MODULE;
 	}
 
 	public ResourceManager getResourceManager() {
-		for (EngineModule module : this.MODULES) {
-			if (module instanceof ResourceManager) {
-				return (ResourceManager) module;
-			}
+		final ResourceManager MODULE = getModule(ResourceManager.class);
+		if (MODULE == null) {
+			throw new NullPointerException(
+					"Did not found the ResourceManager, where is it?");
 		}
+		return MODULE;
+	}
 
-		throw new NullPointerException(
-				"Did not found the ResourceManager, where is it?");
+	/**
+	 * @return the module of the given class or a subclass of it, null if
+	 *         there is none
+	 */
+	public <T extends EngineModule> T getModule(Class<T> type) {
+		return type.cast(this.TYPES.get(type));
 	}
 
 	public EngineModule getModule(String name) {
-		for (EngineModule module : this.MODULES) {
-			if (module.getName().equals(name)) {
-				return module;
-			}
+		final EngineModule MODULE = this.NAMES.get(name);
+		if (MODULE == null) {
+			throw new NullPointerException(
+					"Did not found the module, where is it?");
 		}
-
-		throw new NullPointerException("Did not found the module, where is it?");
+		return MODULE;
 	}
 
+	/**
+	 * Adds the module after its dependencies. Modules added after the engine
+	 * was created aren't initialized by the engine.
+	 */
 	public EngineModule addModule(EngineModule module) {
 		this.MODULES.add(module);
+		this.NAMES.put(module.getName(), module);
 
+		// also findable by its super classes, the first module wins
+		Class<?> type = module.getClass();
+		while (type != EngineModule.class) {
+			if (!this.TYPES.containsKey(type)) {
+				this.TYPES.put(type, module);
+			}
+			type = type.getSuperclass();
+		}
+
+		sortModules();
 		return module;
 	}
+
+	/**
+	 * Orders the modules topologically by their dependencies, otherwise
+	 * keeps the order they were added in.
+	 */
+	private void sortModules() {
+		final ArrayList<EngineModule> SORTED = new ArrayList<>(
+				this.MODULES.size());
+		final HashMap<EngineModule, Boolean> VISITED = new HashMap<>();
+		for (EngineModule module : this.MODULES) {
+			visit(module, SORTED, VISITED);
+		}
+
+		this.MODULES.clear();
+		this.MODULES.addAll(SORTED);
+
+		final ArrayList<EngineModule> UPDATES = new ArrayList<>();
+		for (EngineModule module : this.MODULES) {
+			if (module.needsUpdate()) {
+				UPDATES.add(module);
+			}
+		}
+		this.updates = UPDATES.toArray(new EngineModule[UPDATES.size()]);
+		this.updateSections = new int[this.updates.length];
+		this.updateMetrics = new int[this.updates.length];
+		for (int i = 0; i < this.updates.length; i++) {
+			final String NAME = this.updates[i].getClass().getSimpleName();
+			this.updateSections[i] = Profiler.register(NAME + " update");
+			this.updateMetrics[i] = Metrics.register(NAME + " update ns");
+		}
+	}
+
+	/**
+	 * Depth first, VISITED is false while the dependencies of a module are
+	 * visited and true once it is sorted.
+	 */
+	private void visit(EngineModule module, List<EngineModule> sorted,
+			HashMap<EngineModule, Boolean> visited) {
+		final Boolean STATE = visited.get(module);
+		if (STATE != null) {
+			if (!STATE) {
+				throw new IllegalStateException("Circular module dependency: "
+						+ module.getName());
+			}
+			return;
+		}
+
+		visited.put(module, false);
+		for (Class<?> dependency : module.getDependencies()) {
+			final EngineModule DEPENDENCY = this.TYPES.get(dependency);
+			if (DEPENDENCY != null && DEPENDENCY != module) {
+				visit(DEPENDENCY, sorted, visited);
+			}
+		}
+		visited.put(module, true);
+		sorted.add(module);
+	}
 }
\ No newline at end of file
@@ -7,4 +7,13 @@ public class EngineConfiguration {
 	public static ICullingSystem cullingSystem = new ZoneBasedCulling();
 	public static boolean debugMode = false;
 	public static boolean debugPhysic = false;
+	/**
+	 * Cull all layers on a ForkJoinPool before drawing them. Only used for
+	 * culling systems that are thread safe.
+	 */
+	public static boolean parallelCulling = false;
+	/**
+	 * Default for {@link com.jemge.j2d.Layer#setTextureSorting(boolean)}.
+	 */
+	public static boolean textureSorting = false;
 }
\ No newline at end of file
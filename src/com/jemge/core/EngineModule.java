@@ -17,10 +17,29 @@
 package com.jemge.core;
 
 public abstract class EngineModule {
+	private static final Class<?>[] NO_DEPENDENCIES = new Class<?>[0];
+
 	public String getName() {
 		return getClass().getName();
 	}
 
+	/**
+	 * Modules that have to be initialized and updated before this one. The
+	 * engine derives the order from it, dependencies that aren't added to the
+	 * engine are ignored.
+	 */
+	public Class<?>[] getDependencies() {
+		return NO_DEPENDENCIES;
+	}
+
+	/**
+	 * @return false if {@link #update()} does nothing, the engine doesn't
+	 *         call it then
+	 */
+	public boolean needsUpdate() {
+		return true;
+	}
+
 	public abstract void init();
 
 	public abstract void update();
@@ -0,0 +1,113 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.core;
+
+/**
+ * Runs a {@link JServerGame} without window and GL context at a fixed tick
+ * rate. {@link #run()} blocks until {@link #stop()} is called, use it from a
+ * main() or a thread. {@link #step(int)} runs ticks without waiting, for
+ * tests and replays.
+ */
+
+public class JServer implements Runnable {
+	private final JServerGame GAME;
+	private final float TICKRATE;
+
+	private volatile boolean stopped = false;
+	private boolean created = false;
+	private long ticks = 0;
+
+	/**
+	 * @param tickRate
+	 *            ticks per second
+	 */
+	public JServer(JServerGame game, float tickRate) {
+		this.GAME = game;
+		this.TICKRATE = tickRate;
+	}
+
+	@Override
+	public void run() {
+		create();
+
+		final long TICK = (long) (1000000000L / this.TICKRATE);
+		long next = System.nanoTime();
+		while (!this.stopped) {
+			tick();
+
+			next += TICK;
+			final long WAIT = next - System.nanoTime();
+			if (WAIT > 0) {
+				try {
+					Thread.sleep(WAIT / 1000000L, (int) (WAIT % 1000000L));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			} else if (-WAIT > TICK * 10) {
+				// too far behind, don't try to catch up
+				next = System.nanoTime();
+			}
+		}
+
+		dispose();
+	}
+
+	/**
+	 * Runs the given number of ticks at once.
+	 */
+	public void step(int ticks) {
+		create();
+		for (int i = 0; i < ticks; i++) {
+			tick();
+		}
+	}
+
+	private void create() {
+		if (!this.created) {
+			this.GAME.create();
+			this.created = true;
+		}
+	}
+
+	private void tick() {
+		this.GAME.update(1f / this.TICKRATE);
+		this.ticks++;
+	}
+
+	/**
+	 * Lets {@link #run()} return after the current tick, can be called from
+	 * any thread.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	/**
+	 * Disposes the game, only needed after {@link #step(int)}.
+	 */
+	public void dispose() {
+		if (this.created) {
+			this.GAME.dispose();
+			this.created = false;
+		}
+	}
+
+	public long getTicks() {
+		return this.ticks;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.core;
+
+/**
+ * Use this instead of {@link JGame} for a headless server. Calls the required
+ * functions of the engine, overwrite {@link #tick(float)} for the game logic.
+ *
+ * @see JServer
+ */
+
+public class JServerGame {
+	public void create() {
+		new Engine(true);
+	}
+
+	/**
+	 * Called once per tick, before the engine updates.
+	 *
+	 * @param delta
+	 *            length of a tick in seconds
+	 */
+	public void tick(float delta) {
+	}
+
+	public void update(float delta) {
+		tick(delta);
+		Jemge.engine.update(delta);
+	}
+
+	public void dispose() {
+		Jemge.engine.dispose();
+	}
+}
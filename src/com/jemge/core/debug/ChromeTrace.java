@@ -0,0 +1,101 @@
+package com.jemge.core.debug;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the events of the {@link Profiler} as Chrome trace event JSON, it
+ * can be opened in chrome://tracing or other trace viewers. Exports the last
+ * capture of {@link Profiler#startCapture(int)}, or the latest events if
+ * there is none.
+ */
+
+public class ChromeTrace {
+	public static void write(FileHandle file) {
+		final Writer WRITER = file.writer(false, "UTF-8");
+		try {
+			write(WRITER);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				WRITER.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public static void write(Writer writer) throws IOException {
+		final long FIRST = Profiler.getFirstEvent();
+		final long LAST = Profiler.getLastEvent();
+		final long FRAMES = Profiler.getFrameCount();
+		final long[] DATA = new long[4];
+
+		// events are stored when they end, the earliest start is the origin
+		long origin = Long.MAX_VALUE;
+		for (long event = FIRST; event < LAST; event++) {
+			if (Profiler.getEvent(event, DATA)) {
+				origin = Math.min(origin, DATA[1]);
+			}
+		}
+		for (long frame = Math.max(0, FRAMES - Profiler.FRAMES); frame < FRAMES;
+				frame++) {
+			final long EVENT = Profiler.getFrameEvent(frame);
+			if (EVENT >= FIRST && EVENT < LAST) {
+				origin = Math.min(origin, Profiler.getFrameStart(frame));
+			}
+		}
+		final long ORIGIN = origin == Long.MAX_VALUE ? 0 : origin;
+
+		writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+		boolean first = true;
+
+		// frame starts as global instant events
+		for (long frame = Math.max(0, FRAMES - Profiler.FRAMES); frame < FRAMES;
+				frame++) {
+			final long EVENT = Profiler.getFrameEvent(frame);
+			if (EVENT < FIRST || EVENT >= LAST) {
+				continue;
+			}
+
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+			writer.write("{\"name\":\"Frame " + frame
+					+ "\",\"ph\":\"i\",\"s\":\"g\",\"pid\":1,\"tid\":0,\"ts\":"
+					+ micros(Profiler.getFrameStart(frame) - ORIGIN) + "}");
+		}
+
+		for (long event = FIRST; event < LAST; event++) {
+			// recorded meanwhile, skipped
+			if (!Profiler.getEvent(event, DATA)) {
+				continue;
+			}
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+
+			writer.write("{\"name\":\""
+					+ escape(Profiler.getName((int) DATA[0]))
+					+ "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + DATA[3]
+					+ ",\"ts\":" + micros(DATA[1] - ORIGIN) + ",\"dur\":"
+					+ micros(DATA[2] - DATA[1]) + "}");
+		}
+
+		writer.write("]}");
+		writer.flush();
+	}
+
+	private static String micros(long nanos) {
+		return String.valueOf(nanos / 1000d);
+	}
+
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
@@ -0,0 +1,152 @@
+package com.jemge.core.debug;
+
+import com.badlogic.gdx.Gdx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per frame counters of the engine, like draw calls, culled entities or
+ * raycasts. Like the {@link Profiler}, metrics are registered once and
+ * updated by their id. Values are collected during a frame and published
+ * when the next one starts, {@link #get(int)} always returns the last
+ * finished frame. Can be read from any thread.
+ */
+
+public class Metrics {
+	/**
+	 * most metrics that can be registered
+	 */
+	public static final int MAX_METRICS = 256;
+	/**
+	 * milliseconds between two dumps to the log, 0 turns it off
+	 */
+	public static int logInterval = 0;
+
+	private static final HashMap<String, Integer> IDS = new HashMap<>();
+	private static final String[] NAMES = new String[MAX_METRICS];
+	private static int metrics = 0;
+
+	private static final AtomicLongArray CURRENT = new AtomicLongArray(
+			MAX_METRICS);
+	private static final AtomicLongArray LAST = new AtomicLongArray(
+			MAX_METRICS);
+	private static long frames = 0;
+	private static long lastLog = System.currentTimeMillis();
+
+	/**
+	 * Returns the id of the metric, registers it on the first call.
+	 *
+	 * @return -1 if {@link #MAX_METRICS} are registered, updates of it are
+	 *         dropped
+	 */
+	public static synchronized int register(String name) {
+		final Integer ID = IDS.get(name);
+		if (ID != null) {
+			return ID;
+		}
+		if (metrics == MAX_METRICS) {
+			return -1;
+		}
+
+		NAMES[metrics] = name;
+		IDS.put(name, metrics);
+		return metrics++;
+	}
+
+	/**
+	 * Sets the value of the current frame.
+	 */
+	public static void set(int metric, long value) {
+		if (metric != -1) {
+			CURRENT.set(metric, value);
+		}
+	}
+
+	/**
+	 * Adds to the value of the current frame.
+	 */
+	public static void add(int metric, long value) {
+		if (metric != -1) {
+			CURRENT.addAndGet(metric, value);
+		}
+	}
+
+	/**
+	 * @return value of the last finished frame
+	 */
+	public static long get(int metric) {
+		return metric == -1 ? 0 : LAST.get(metric);
+	}
+
+	/**
+	 * @return value of the last finished frame, 0 if there is no such metric
+	 */
+	public static long get(String name) {
+		final Integer ID;
+		synchronized (Metrics.class) {
+			ID = IDS.get(name);
+		}
+		return ID == null ? 0 : LAST.get(ID);
+	}
+
+	public static synchronized int getCount() {
+		return metrics;
+	}
+
+	public static synchronized String getName(int metric) {
+		return NAMES[metric];
+	}
+
+	/**
+	 * @return number of finished frames
+	 */
+	public static synchronized long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Publishes the values of the last frame and starts a new one, called by
+	 * the engine.
+	 */
+	public static void frame() {
+		final int COUNT;
+		synchronized (Metrics.class) {
+			COUNT = metrics;
+			frames++;
+		}
+		for (int i = 0; i < COUNT; i++) {
+			LAST.set(i, CURRENT.getAndSet(i, 0));
+		}
+
+		if (logInterval > 0
+				&& System.currentTimeMillis() - lastLog > logInterval) {
+			lastLog = System.currentTimeMillis();
+			log();
+		}
+	}
+
+	/**
+	 * Writes all metrics of the last frame to the log.
+	 */
+	public static void log() {
+		if (Gdx.app == null) {
+			return;
+		}
+		for (int i = 0, count = getCount(); i < count; i++) {
+			Gdx.app.log("Metrics", getName(i) + ": " + LAST.get(i));
+		}
+	}
+
+	/**
+	 * Writes all metrics of the last frame as "name=value" lines.
+	 */
+	public static void dump(Writer writer) throws IOException {
+		for (int i = 0, count = getCount(); i < count; i++) {
+			writer.write(getName(i) + "=" + LAST.get(i) + "\n");
+		}
+		writer.flush();
+	}
+}
@@ -2,58 +2,323 @@ package com.jemge.core.debug;
 
 import com.badlogic.gdx.Gdx;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frame profiler. Sections are registered once and measured by their id:
+ *
+ * <pre>
+ * private static final int CULL = Profiler.register(&quot;Layer cull&quot;);
+ *
+ * final long START = Profiler.begin(CULL);
+ * ...
+ * Profiler.end(CULL, START);
+ * </pre>
+ *
+ * Scopes can be nested and used from any thread. Every measurement goes into
+ * the rolling window of its section, for the percentiles, and into a ring
+ * buffer of the latest events, for the timeline of the last frames.
+ * {@link #begin(int)} and {@link #end(int, long)} don't lock or allocate, an
+ * event is published by the sequence number of its slot once it is written,
+ * so readers skip events that are incomplete or already overwritten. Frames,
+ * captures and the statistics are synchronized.
+ */
 
 public class Profiler {
-	private static final HashMap<String, ProfilerObject> RESULTS = new HashMap<>();
+	/**
+	 * most sections that can be registered
+	 */
+	public static final int MAX_SECTIONS = 256;
+	/**
+	 * samples per section the percentiles are taken from, a power of two
+	 */
+	public static final int WINDOW = 256;
+	/**
+	 * events kept for the timeline, a power of two
+	 */
+	public static final int EVENTS = 16384;
+	/**
+	 * frames kept for the timeline
+	 */
+	public static final int FRAMES = 128;
+
 	public static boolean debugOn = false;
 	public static boolean logPerSecond = false;
 
-	private static long startTime = System.currentTimeMillis();
+	private static final HashMap<String, Integer> IDS = new HashMap<>();
+	private static final String[] NAMES = new String[MAX_SECTIONS];
+	private static int sections = 0;
+
+	// rolling windows, WINDOW samples per section
+	private static final long[] SAMPLES = new long[MAX_SECTIONS * WINDOW];
+	private static final AtomicIntegerArray COUNTS = new AtomicIntegerArray(
+			MAX_SECTIONS);
+	private static final long[] SCRATCH = new long[WINDOW];
+
+	// ring buffer of the latest events
+	private static final AtomicLong EVENT_SEQUENCE = new AtomicLong();
+	// section, start, end and thread per event
+	private static final AtomicLongArray EVENT_DATA = new AtomicLongArray(
+			EVENTS * 4);
+	// sequence number + 1 of the event in the slot, 0 while it is written
+	private static final AtomicLongArray EVENT_PUBLISHED = new AtomicLongArray(
+			EVENTS);
+
+	// ring buffer of frame starts, as time and first event
+	private static final long[] FRAME_STARTS = new long[FRAMES];
+	private static final long[] FRAME_EVENTS = new long[FRAMES];
+	private static long frames = 0;
+
+	// capture of the events of the next frames
+	private static boolean capturing = false;
+	private static boolean debugBefore = false;
+	private static long captureFrames = 0;
+	private static long captureFirst = 0;
+	private static long captureLast = -1;
+
+	private static final long[] LEGACY_STARTS = new long[MAX_SECTIONS];
+	private static long lastLog = System.currentTimeMillis();
+
+	/**
+	 * Returns the id of the section, registers it on the first call. Call it
+	 * once and keep the id, not on every measurement.
+	 *
+	 * @return -1 if {@link #MAX_SECTIONS} are registered, measurements of it
+	 *         are dropped
+	 */
+	public static synchronized int register(String name) {
+		final Integer ID = IDS.get(name);
+		if (ID != null) {
+			return ID;
+		}
+		if (sections == MAX_SECTIONS) {
+			return -1;
+		}
+
+		NAMES[sections] = name;
+		IDS.put(name, sections);
+		return sections++;
+	}
 
-	public static void start(Object object, String name) {
+	/**
+	 * @return start time to pass to {@link #end(int, long)}, 0 if profiling
+	 *         is off
+	 */
+	public static long begin(int section) {
+		return debugOn ? System.nanoTime() : 0;
+	}
+
+	public static void end(int section, long start) {
+		if (!debugOn || start == 0 || section == -1) {
+			return;
+		}
+
+		final long END = System.nanoTime();
+		final int SAMPLE = COUNTS.getAndIncrement(section) & WINDOW - 1;
+		SAMPLES[section * WINDOW + SAMPLE] = END - start;
+
+		final long SEQUENCE = EVENT_SEQUENCE.getAndIncrement();
+		final int EVENT = (int) (SEQUENCE & EVENTS - 1);
+		EVENT_PUBLISHED.set(EVENT, 0);
+		EVENT_DATA.lazySet(EVENT * 4, section);
+		EVENT_DATA.lazySet(EVENT * 4 + 1, start);
+		EVENT_DATA.lazySet(EVENT * 4 + 2, END);
+		EVENT_DATA.lazySet(EVENT * 4 + 3, Thread.currentThread().getId());
+		EVENT_PUBLISHED.lazySet(EVENT, SEQUENCE + 1);
+	}
+
+	/**
+	 * Marks the start of a frame, called by the engine.
+	 */
+	public static synchronized void frame() {
+		// a capture also ends when debugOn was turned off meanwhile
+		if (capturing && (!debugOn || --captureFrames < 0)) {
+			capturing = false;
+			captureLast = EVENT_SEQUENCE.get();
+			debugOn = debugOn && debugBefore;
+			return;
+		}
 		if (!debugOn) {
 			return;
 		}
-		if (logPerSecond) {
-			if (System.currentTimeMillis() - startTime > 1000) {
-				getResults();
-				startTime = System.currentTimeMillis();
-			}
+
+		final int FRAME = (int) (frames % FRAMES);
+		FRAME_STARTS[FRAME] = System.nanoTime();
+		FRAME_EVENTS[FRAME] = EVENT_SEQUENCE.get();
+		frames++;
+
+		if (logPerSecond && System.currentTimeMillis() - lastLog > 1000) {
+			lastLog = System.currentTimeMillis();
+			getResults();
+		}
+	}
+
+	/**
+	 * Records the next frames, even if {@link #debugOn} is off. Only the
+	 * latest {@link #EVENTS} events are kept, longer captures lose their
+	 * start.
+	 *
+	 * @see ChromeTrace
+	 */
+	public static synchronized void startCapture(int frames) {
+		if (!capturing) {
+			debugBefore = debugOn;
 		}
+		debugOn = true;
+		capturing = true;
+		captureFrames = frames;
+		captureFirst = EVENT_SEQUENCE.get();
+		captureLast = -1;
+	}
+
+	public static synchronized boolean isCapturing() {
+		return capturing;
+	}
 
-		ProfilerObject profiler = null;
-		if (RESULTS.keySet().contains(object.getClass().getSimpleName() + name)) {
-			profiler = RESULTS.get(object.getClass().getSimpleName() + name);
-		} else {
-			profiler = new ProfilerObject();
+	/**
+	 * @return true if a capture finished, its events are exported by
+	 *         {@link ChromeTrace}
+	 */
+	public static synchronized boolean hasCapture() {
+		return captureLast != -1;
+	}
+
+	/**
+	 * Exported range of events: the last capture, or everything in the ring
+	 * buffer if there is none.
+	 */
+	static synchronized long getFirstEvent() {
+		final long FIRST = hasCapture() ? captureFirst : 0;
+		return Math.max(FIRST, getLastEvent() - EVENTS);
+	}
+
+	static synchronized long getLastEvent() {
+		return hasCapture() ? captureLast : EVENT_SEQUENCE.get();
+	}
+
+	/**
+	 * Copies section, start, end and thread of the event.
+	 *
+	 * @return false if the event is still being written or was overwritten,
+	 *         the copy is invalid then
+	 */
+	static boolean getEvent(long event, long[] out) {
+		final int SLOT = (int) (event & EVENTS - 1);
+		if (EVENT_PUBLISHED.get(SLOT) != event + 1) {
+			return false;
 		}
-		profiler.name = name;
-		profiler.class_name = object.getClass().getSimpleName();
-		profiler.start_time = System.nanoTime();
 
-		RESULTS.put(object.getClass().getSimpleName() + name, profiler);
+		out[0] = EVENT_DATA.get(SLOT * 4);
+		out[1] = EVENT_DATA.get(SLOT * 4 + 1);
+		out[2] = EVENT_DATA.get(SLOT * 4 + 2);
+		out[3] = EVENT_DATA.get(SLOT * 4 + 3);
+		return EVENT_PUBLISHED.get(SLOT) == event + 1;
+	}
+
+	static synchronized long getFrameCount() {
+		return frames;
 	}
 
-	public static void stop(Object object, String name) {
+	static long getFrameStart(long frame) {
+		return FRAME_STARTS[(int) (frame % FRAMES)];
+	}
+
+	static long getFrameEvent(long frame) {
+		return FRAME_EVENTS[(int) (frame % FRAMES)];
+	}
+
+	/**
+	 * @deprecated string keys are looked up on every call, use
+	 *             {@link #begin(int)}
+	 */
+	@Deprecated
+	public static synchronized void start(Object object, String name) {
 		if (!debugOn) {
 			return;
 		}
-		RESULTS.get(object.getClass().getSimpleName() + name).final_time = System
-				.nanoTime()
-				- RESULTS.get(object.getClass().getSimpleName() + name).start_time;
+		final int ID = register(object.getClass().getSimpleName() + " " + name);
+		if (ID != -1) {
+			LEGACY_STARTS[ID] = System.nanoTime();
+		}
 	}
 
-	public static void getResults() {
+	/**
+	 * @deprecated use {@link #end(int, long)}
+	 */
+	@Deprecated
+	public static synchronized void stop(Object object, String name) {
 		if (!debugOn) {
 			return;
 		}
+		final int ID = register(object.getClass().getSimpleName() + " " + name);
+		if (ID != -1) {
+			end(ID, LEGACY_STARTS[ID]);
+			LEGACY_STARTS[ID] = 0;
+		}
+	}
 
-		Gdx.app.log("Profiler List size", String.valueOf(RESULTS.size()));
-		for (ProfilerObject object : RESULTS.values()) {
-			Gdx.app.log(object.class_name + " " + object.name,
-					String.valueOf(object.final_time / 100));
+	public static synchronized int getSectionCount() {
+		return sections;
+	}
+
+	public static synchronized String getName(int section) {
+		return NAMES[section];
+	}
+
+	/**
+	 * @return number of measurements of the section since the start
+	 */
+	public static int getCount(int section) {
+		return COUNTS.get(section);
+	}
+
+	/**
+	 * @param percentile
+	 *            0 to 1, e.g. 0.95f
+	 * @return time in nanoseconds over the rolling window, 0 without samples
+	 */
+	public static synchronized long getPercentile(int section,
+			float percentile) {
+		final int SIZE = Math.min(COUNTS.get(section), WINDOW);
+		if (SIZE == 0) {
+			return 0;
+		}
+
+		System.arraycopy(SAMPLES, section * WINDOW, SCRATCH, 0, SIZE);
+		Arrays.sort(SCRATCH, 0, SIZE);
+		final int INDEX = Math.min(SIZE - 1, (int) (percentile * SIZE));
+		return SCRATCH[INDEX];
+	}
+
+	/**
+	 * @return longest time in nanoseconds over the rolling window
+	 */
+	public static long getMax(int section) {
+		return getPercentile(section, 1f);
+	}
+
+	/**
+	 * Writes p50, p95, p99 and max of every section to the log, in
+	 * milliseconds.
+	 */
+	public static synchronized void getResults() {
+		if (!debugOn || Gdx.app == null) {
+			return;
+		}
+
+		for (int i = 0; i < sections; i++) {
+			if (COUNTS.get(i) == 0) {
+				continue;
+			}
+			Gdx.app.log("Profiler", NAMES[i] + ": p50 "
+					+ getPercentile(i, 0.5f) / 1000000f + " p95 "
+					+ getPercentile(i, 0.95f) / 1000000f + " p99 "
+					+ getPercentile(i, 0.99f) / 1000000f + " max "
+					+ getMax(i) / 1000000f + " ms");
 		}
-		// TODO: not nice output a.t.m. ...
 	}
-}
\ No newline at end of file
+}
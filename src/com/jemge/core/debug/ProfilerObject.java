@@ -1,13 +0,0 @@
-package com.jemge.core.debug;
-
-public class ProfilerObject {
-	protected long start_time;
-	protected long final_time;
-
-	protected String name;
-	protected String class_name;
-
-	public ProfilerObject() {
-		this.start_time = System.nanoTime();
-	}
-}
\ No newline at end of file
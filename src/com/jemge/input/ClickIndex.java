@@ -0,0 +1,147 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.input;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.jemge.j2d.IEntity;
+import com.jemge.j2d.culling.DynamicTree;
+import com.jemge.j2d.culling.TreeBasedCulling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Input listeners in a {@link DynamicTree}, like the
+ * {@link TreeBasedCulling}. Static entities are inserted once, the boxes of
+ * all other listeners are updated before each query.
+ */
+
+class ClickIndex {
+	private static final Comparator<Entry> TOPMOST_FIRST = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			if (a.Z != b.Z) {
+				return a.Z > b.Z ? -1 : 1;
+			}
+			return a.ORDER > b.ORDER ? -1 : a.ORDER == b.ORDER ? 0 : 1;
+		}
+	};
+
+	private final DynamicTree<Entry> TREE;
+	private final HashMap<IInputListener, Entry> ENTRIES;
+	private final ArrayList<Entry> DYNAMIC_OBJECTS;
+	private final ArrayList<Entry> CANDIDATES;
+	private final Rectangle POINT;
+	private long order = 0;
+
+	static final class Entry {
+		final IInputListener LISTENER;
+		private final int Z;
+		private final long ORDER;
+		private int id = DynamicTree.NULL_NODE;
+		private int index = -1; // index in DYNAMIC_OBJECTS
+
+		private Entry(IInputListener listener, int z, long order) {
+			this.LISTENER = listener;
+			this.Z = z;
+			this.ORDER = order;
+		}
+
+		boolean isRemoved() {
+			return this.id == DynamicTree.NULL_NODE;
+		}
+	}
+
+	ClickIndex() {
+		this.TREE = new DynamicTree<Entry>();
+		this.ENTRIES = new HashMap<IInputListener, Entry>();
+		this.DYNAMIC_OBJECTS = new ArrayList<Entry>(32);
+		this.CANDIDATES = new ArrayList<Entry>(16);
+		this.POINT = new Rectangle();
+	}
+
+	void add(IInputListener listener, int z) {
+		remove(listener);
+
+		final boolean STATIC = listener instanceof IEntity
+				&& ((IEntity) listener).getData("static");
+		final Entry ENTRY = new Entry(listener, z, this.order++);
+		ENTRY.id = this.TREE.createProxy(listener.getRectangle(),
+				STATIC ? 0f : TreeBasedCulling.fatMargin, ENTRY);
+		this.ENTRIES.put(listener, ENTRY);
+
+		if (!STATIC) {
+			ENTRY.index = this.DYNAMIC_OBJECTS.size();
+			this.DYNAMIC_OBJECTS.add(ENTRY);
+		}
+	}
+
+	void remove(IInputListener listener) {
+		final Entry ENTRY = this.ENTRIES.remove(listener);
+		if (ENTRY == null) {
+			return;
+		}
+
+		this.TREE.destroyProxy(ENTRY.id);
+		ENTRY.id = DynamicTree.NULL_NODE;
+
+		if (ENTRY.index != -1) {
+			// swap with the last one, so removing is O(1)
+			final Entry LAST = this.DYNAMIC_OBJECTS.remove(this.DYNAMIC_OBJECTS
+					.size() - 1);
+			if (LAST != ENTRY) {
+				LAST.index = ENTRY.index;
+				this.DYNAMIC_OBJECTS.set(ENTRY.index, LAST);
+			}
+			ENTRY.index = -1;
+		}
+	}
+
+	int size() {
+		return this.ENTRIES.size();
+	}
+
+	/**
+	 * Adds all listeners containing the point to the list, the topmost first:
+	 * higher z, then added later.
+	 */
+	void hit(float x, float y, List<Entry> hits) {
+		for (int i = 0, size = this.DYNAMIC_OBJECTS.size(); i < size; i++) {
+			final Entry ENTRY = this.DYNAMIC_OBJECTS.get(i);
+			this.TREE.moveProxy(ENTRY.id, ENTRY.LISTENER.getRectangle(),
+					TreeBasedCulling.fatMargin);
+		}
+
+		this.CANDIDATES.clear();
+		this.TREE.query(this.POINT.set(x, y, 0, 0), this.CANDIDATES);
+
+		for (int i = 0, size = this.CANDIDATES.size(); i < size; i++) {
+			final Entry ENTRY = this.CANDIDATES.get(i);
+			if (ENTRY.LISTENER.getRectangle().contains(x, y)) {
+				hits.add(ENTRY);
+			}
+		}
+		this.CANDIDATES.clear();
+
+		if (hits.size() > 1) {
+			Collections.sort(hits, TOPMOST_FIRST);
+		}
+	}
+}
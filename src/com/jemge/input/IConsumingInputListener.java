@@ -0,0 +1,30 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.input;
+
+/**
+ * Input listener that can stop a click from reaching the listeners below it.
+ */
+
+public interface IConsumingInputListener extends IInputListener {
+	/**
+	 * Called after {@link #clicked()}.
+	 *
+	 * @return true if listeners on lower layers shouldn't get the click
+	 */
+	public boolean consumeClick();
+}
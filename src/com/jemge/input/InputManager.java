@@ -18,79 +18,224 @@ package com.jemge.input;
 
 import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.jemge.core.EngineModule;
 import com.jemge.core.Jemge;
+import com.jemge.j2d.JUIManager;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 
 public class InputManager extends EngineModule implements InputProcessor {
 	private static final Vector3 INPUT_POSITION = new Vector3();
 	private static final Vector2 POSITION_BY_CAM = new Vector2();
 
-	private List<IInputListener> listeners;
+	/**
+	 * key codes 0 - 255, the last slot is {@link Input.Keys#ANY_KEY}
+	 */
+	private static final int KEYS = 257;
+	private static final KeyHandler[] NO_HANDLERS = new KeyHandler[0];
+	private static final MethodType HANDLER_TYPE = MethodType
+			.methodType(void.class);
 
-	private HashMap<Method, Object> keyDownListener;
-	private HashMap<Method, Object> keyUpListener;
-	private HashMap<Method, Object> whileDownListener;
+	private ClickIndex listeners;
+	private final List<ClickIndex.Entry> HITS = new ArrayList<>();
+	private boolean topmostOnly = false;
+
+	// handlers by key code, the arrays are replaced on change and never
+	// modified, so listeners may be added or removed while dispatching
+	private KeyHandler[][] keyDownListener;
+	private KeyHandler[][] keyUpListener;
+	private KeyHandler[][] whileDownListener;
+	private int[] whileDownKeys;
+
+	@Override
+	public Class<?>[] getDependencies() {
+		return new Class<?>[] { JUIManager.class };
+	}
 
 	@Override
 	public void init() {
-		this.listeners = new ArrayList<IInputListener>();
-		this.keyDownListener = new HashMap<Method, Object>();
-		this.keyUpListener = new HashMap<Method, Object>();
-		this.whileDownListener = new HashMap<Method, Object>();
+		this.listeners = new ClickIndex();
+		this.keyDownListener = new KeyHandler[KEYS][];
+		this.keyUpListener = new KeyHandler[KEYS][];
+		this.whileDownListener = new KeyHandler[KEYS][];
+		Arrays.fill(this.keyDownListener, NO_HANDLERS);
+		Arrays.fill(this.keyUpListener, NO_HANDLERS);
+		Arrays.fill(this.whileDownListener, NO_HANDLERS);
+		this.whileDownKeys = new int[0];
 
 		Gdx.input.setInputProcessor(this);
 	}
 
 	public void addListener(IInputListener listener) {
-		this.listeners.add(listener);
+		addListener(listener, 0);
+	}
+
+	/**
+	 * @param z
+	 *            listeners with a higher z get a click first, usually the
+	 *            layer of the listener
+	 */
+	public void addListener(IInputListener listener, int z) {
+		this.listeners.add(listener, z);
 	}
 
 	public void removeListener(IInputListener listener) {
 		this.listeners.remove(listener);
 	}
 
+	/**
+	 * Only the topmost listener under the pointer gets a click. Otherwise all
+	 * of them, from the top down until an {@link IConsumingInputListener}
+	 * consumes it.
+	 */
+	public InputManager setTopmostOnly(boolean topmost) {
+		this.topmostOnly = topmost;
+		return this;
+	}
+
+	public boolean getTopmostOnly() {
+		return this.topmostOnly;
+	}
+
+	/**
+	 * Binds the annotated methods of the listener. The annotations are only
+	 * read here, dispatching a key is an array lookup and a direct call.
+	 */
 	public void addKeyListener(IKeyListener listener) {
 
 		for (Method method : listener.getClass().getMethods()) {
 			if (method.isAnnotationPresent(ListenKeyDown.class)) {
-				this.keyDownListener.put(method, listener);
+				add(this.keyDownListener,
+						method.getAnnotation(ListenKeyDown.class).key(),
+						listener, method);
 			}
 			if (method.isAnnotationPresent(ListenKeyUp.class)) {
-				this.keyUpListener.put(method, listener);
+				add(this.keyUpListener, method.getAnnotation(ListenKeyUp.class)
+						.key(), listener, method);
 			}
 			if (method.isAnnotationPresent(ListenWhilePressed.class)) {
-				this.whileDownListener.put(method, listener);
+				add(this.whileDownListener,
+						method.getAnnotation(ListenWhilePressed.class).key(),
+						listener, method);
 			}
 		}
+		updateWhileDownKeys();
 	}
 
 	public void removeKeyListener(IKeyListener listener) {
 
-		for (Method method : listener.getClass().getMethods()) {
-			if (method.isAnnotationPresent(ListenKeyDown.class)) {
-				this.keyDownListener.remove(method);
+		for (int i = 0; i < KEYS; i++) {
+			remove(this.keyDownListener, i, listener);
+			remove(this.keyUpListener, i, listener);
+			remove(this.whileDownListener, i, listener);
+		}
+		updateWhileDownKeys();
+	}
+
+	private static int slot(int key) {
+		return key == Input.Keys.ANY_KEY ? KEYS - 1 : key;
+	}
+
+	private static void add(KeyHandler[][] table, int key,
+			IKeyListener listener, Method method) {
+		final int SLOT = slot(key);
+		if (SLOT < 0 || SLOT >= KEYS) {
+			return; // no such key, it would never fire
+		}
+
+		final MethodHandle HANDLE;
+		try {
+			method.setAccessible(true);
+			HANDLE = MethodHandles.lookup().unreflect(method).bindTo(listener)
+					.asType(HANDLER_TYPE);
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+			return;
+		} catch (WrongMethodTypeException | IllegalArgumentException e) {
+			// parameters or a static method, the handler is skipped
+			e.printStackTrace();
+			return;
+		}
+
+		final KeyHandler[] OLD = table[SLOT];
+		final KeyHandler[] HANDLERS = Arrays.copyOf(OLD, OLD.length + 1);
+		HANDLERS[OLD.length] = new KeyHandler(listener, HANDLE);
+		table[SLOT] = HANDLERS;
+	}
+
+	private static void remove(KeyHandler[][] table, int slot,
+			IKeyListener listener) {
+		final KeyHandler[] OLD = table[slot];
+		int count = 0;
+		for (KeyHandler handler : OLD) {
+			if (handler.LISTENER != listener) {
+				count++;
 			}
-			if (method.isAnnotationPresent(ListenKeyUp.class)) {
-				this.keyUpListener.remove(method);
+		}
+		if (count == OLD.length) {
+			return;
+		}
+
+		final KeyHandler[] HANDLERS = count == 0 ? NO_HANDLERS
+				: new KeyHandler[count];
+		count = 0;
+		for (KeyHandler handler : OLD) {
+			if (handler.LISTENER != listener) {
+				HANDLERS[count++] = handler;
 			}
-			if (method.isAnnotationPresent(ListenWhilePressed.class)) {
-				this.whileDownListener.remove(method);
+		}
+		table[slot] = HANDLERS;
+	}
+
+	private void updateWhileDownKeys() {
+		int count = 0;
+		for (int i = 0; i < KEYS; i++) {
+			if (this.whileDownListener[i].length > 0) {
+				count++;
+			}
+		}
+
+		final int[] KEYCODES = new int[count];
+		count = 0;
+		for (int i = 0; i < KEYS; i++) {
+			if (this.whileDownListener[i].length > 0) {
+				KEYCODES[count++] = i == KEYS - 1 ? Input.Keys.ANY_KEY : i;
+			}
+		}
+		this.whileDownKeys = KEYCODES;
+	}
+
+	private static void dispatch(KeyHandler[] handlers) {
+		for (int i = 0; i < handlers.length; i++) {
+			try {
+				handlers[i].HANDLE.invokeExact();
+			} catch (Throwable e) {
+				e.printStackTrace();
 			}
 		}
 	}
 
 	public static Vector2 getInputPosition() {
-		INPUT_POSITION.set(Gdx.input.getX(), Gdx.input.getY(), 0);
+		return getInputPosition(Gdx.input.getX(), Gdx.input.getY());
+	}
+
+	/**
+	 * @return the screen position in world coordinates, the vector is reused
+	 */
+	public static Vector2 getInputPosition(int screenX, int screenY) {
+		INPUT_POSITION.set(screenX, screenY, 0);
 		((Camera) Jemge.renderer2D.getCamera()).unproject(INPUT_POSITION);
 		POSITION_BY_CAM.set(INPUT_POSITION.x, INPUT_POSITION.y);
 
@@ -104,14 +249,10 @@ public class InputManager extends EngineModule implements InputProcessor {
 			return;
 		}
 
-		for (Method method : this.whileDownListener.keySet()) {
-			if (Gdx.input.isKeyPressed(method.getAnnotation(
-					ListenWhilePressed.class).key())) {
-				try {
-					method.invoke(this.whileDownListener.get(method));
-				} catch (IllegalAccessException | InvocationTargetException e) {
-					e.printStackTrace();
-				}
+		final int[] KEYCODES = this.whileDownKeys;
+		for (int i = 0; i < KEYCODES.length; i++) {
+			if (Gdx.input.isKeyPressed(KEYCODES[i])) {
+				dispatch(this.whileDownListener[slot(KEYCODES[i])]);
 			}
 		}
 	}
@@ -123,14 +264,8 @@ public class InputManager extends EngineModule implements InputProcessor {
 	@Override
 	public boolean keyDown(int i) {
 		Jemge.engine.getJUIManager().getStage().keyDown(i);
-		for (Method method : this.keyDownListener.keySet()) {
-			if (method.getAnnotation(ListenKeyDown.class).key() == i) {
-				try {
-					method.invoke(this.keyDownListener.get(method));
-				} catch (IllegalAccessException | InvocationTargetException e) {
-					e.printStackTrace();
-				}
-			}
+		if (i >= 0 && i < KEYS - 1) {
+			dispatch(this.keyDownListener[i]);
 		}
 		return true;
 	}
@@ -138,14 +273,8 @@ public class InputManager extends EngineModule implements InputProcessor {
 	@Override
 	public boolean keyUp(int i) {
 		Jemge.engine.getJUIManager().getStage().keyUp(i);
-		for (Method method : this.keyUpListener.keySet()) {
-			if (method.getAnnotation(ListenKeyUp.class).key() == i) {
-				try {
-					method.invoke(this.keyUpListener.get(method));
-				} catch (IllegalAccessException | InvocationTargetException e) {
-					e.printStackTrace();
-				}
-			}
+		if (i >= 0 && i < KEYS - 1) {
+			dispatch(this.keyUpListener[i]);
 		}
 		return true;
 	}
@@ -159,12 +288,27 @@ public class InputManager extends EngineModule implements InputProcessor {
 	@Override
 	public boolean touchDown(int i, int i2, int i3, int i4) {
 		Jemge.engine.getJUIManager().getStage().touchDown(i, i2, i3, i4);
-		for (int a = 0; a < this.listeners.size(); a++) {
-			if (this.listeners.get(a).getRectangle()
-					.contains(getInputPosition())) {
-				this.listeners.get(a).clicked();
+		if (this.listeners.size() == 0) {
+			return true;
+		}
+
+		final Vector2 POSITION = getInputPosition(i, i2);
+		this.listeners.hit(POSITION.x, POSITION.y, this.HITS);
+		for (int a = 0; a < this.HITS.size(); a++) {
+			final ClickIndex.Entry ENTRY = this.HITS.get(a);
+			if (ENTRY.isRemoved()) {
+				continue; // removed by a listener above
+			}
+
+			ENTRY.LISTENER.clicked();
+			if (this.topmostOnly
+					|| ENTRY.LISTENER instanceof IConsumingInputListener
+					&& ((IConsumingInputListener) ENTRY.LISTENER)
+							.consumeClick()) {
+				break;
 			}
 		}
+		this.HITS.clear();
 		return true;
 	}
 
@@ -191,4 +335,14 @@ public class InputManager extends EngineModule implements InputProcessor {
 		Jemge.engine.getJUIManager().getStage().scrolled(i);
 		return true;
 	}
+
+	private static final class KeyHandler {
+		private final IKeyListener LISTENER;
+		private final MethodHandle HANDLE;
+
+		private KeyHandler(IKeyListener listener, MethodHandle handle) {
+			this.LISTENER = listener;
+			this.HANDLE = handle;
+		}
+	}
 }
\ No newline at end of file
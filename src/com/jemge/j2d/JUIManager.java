@@ -15,6 +15,11 @@ public class JUIManager extends EngineModule {
 	public void update() {
 	}
 
+	@Override
+	public boolean needsUpdate() {
+		return false;
+	}
+
 	public void render() {
 		stage.act(Math.min(Gdx.graphics.getDeltaTime(), 1 / 30f));
 		stage.draw();
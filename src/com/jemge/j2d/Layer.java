@@ -16,23 +16,72 @@
 
 package com.jemge.j2d;
 
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.jemge.core.EngineConfiguration;
 import com.jemge.core.Jemge;
+import com.jemge.core.debug.Metrics;
+import com.jemge.core.debug.Profiler;
 import com.jemge.j2d.culling.ICullingSystem;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Layer {
+	private static final int CULL = Profiler.register("Layer cull");
+	private static final int DRAW = Profiler.register("Layer draw");
+	// own sections and metrics once the layer is in a LayerList
+	private int cullSection = CULL;
+	private int drawSection = DRAW;
+	int submittedMetric = -1;
+	int culledMetric = -1;
+
 	private final List<Object> RENDEREROBJECTS;
 	protected ICullingSystem cullingSystem;
 	private static Renderer2D.RenderMode renderMode;
 
+	private final RecursiveAction CULLTASK;
+	private Rectangle cameraView;
+	private boolean forked = false;
+
+	private final TextureSorter SORTER;
+	private boolean textureSorting = EngineConfiguration.textureSorting;
+	private Texture lastTexture;
+
+	/**
+	 * blending switches in the last frame, each one flushes the SpriteBatch
+	 */
+	public int blendTogglesLastFrame = 0;
+	/**
+	 * texture switches in the last frame, each one flushes the SpriteBatch
+	 */
+	public int textureSwitchesLastFrame = 0;
+	/**
+	 * entities in the layer in the last frame
+	 */
+	public int submittedLastFrame = 0;
+	/**
+	 * entities that passed the culling in the last frame
+	 */
+	public int visibleLastFrame = 0;
+
 	public Layer() {
 		this.RENDEREROBJECTS = new ArrayList<Object>();
+		this.SORTER = new TextureSorter();
+		this.CULLTASK = new RecursiveAction() {
+			@Override
+			protected void compute() {
+				final long START = Profiler.begin(Layer.this.cullSection);
+				Layer.this.cullingSystem.cull(Layer.this.cameraView);
+				Profiler.end(Layer.this.cullSection, START);
+			}
+		};
 		try {
 			this.cullingSystem = EngineConfiguration.cullingSystem.getClass()
 					.newInstance();
@@ -62,36 +111,73 @@ public class Layer {
 		}
 	}
 
-	public void render(SpriteBatch spriteBatch, ShapeRenderer shapeRenderer) {
-		this.cullingSystem.cull(Jemge.renderer2D.CAMERAVIEW);
+	/**
+	 * Called by the {@link LayerList} when the layer is added under the
+	 * index, so the profiler and the metrics tell the layers apart. Layers
+	 * keep the shared sections when the profiler has no room for more, and
+	 * go without metrics when the metrics have none.
+	 */
+	void setIndex(int index) {
+		this.cullSection = section("Layer " + index + " cull", CULL);
+		this.drawSection = section("Layer " + index + " draw", DRAW);
+		this.submittedMetric = Metrics.register("layer " + index
+				+ " submitted");
+		this.culledMetric = Metrics.register("layer " + index + " culled");
+	}
 
-		renderMode = Renderer2D.RenderMode.INACTIVE;
-		for (IEntity entity : this.cullingSystem.getFinalRenderList()) {
-			if (entity instanceof IShape) {
-				((IShape) entity).renderShape(shapeRenderer);
-				continue;
-			}
-			if (!(entity instanceof IRendererObject)) {
-				continue;
-			}
+	private static int section(String name, int shared) {
+		final int SECTION = Profiler.register(name);
+		return SECTION == -1 ? shared : SECTION;
+	}
 
-			if (((IRendererObject) entity).hasTransparent()
-					&& !(renderMode == Renderer2D.RenderMode.ENABLED)) { // with
-																			// blending
-				spriteBatch.enableBlending();
+	/**
+	 * Starts culling this layer on the pool, {@link #render} waits for it to
+	 * finish. Does nothing if the culling system isn't thread safe.
+	 *
+	 * @return true if the culling was started
+	 */
+	public boolean forkCull(ForkJoinPool pool, Rectangle camera_view) {
+		if (this.forked || !this.cullingSystem.isThreadSafe()) {
+			return false;
+		}
 
-				renderMode = Renderer2D.RenderMode.ENABLED;
-			} else if (!((IRendererObject) entity).hasTransparent()
-					&& !(renderMode == Renderer2D.RenderMode.DISABLED)) { // without
-																			// blending
-				spriteBatch.disableBlending();
+		this.cullingSystem.prepareCull();
+		this.cameraView = camera_view;
+		this.CULLTASK.reinitialize();
+		pool.execute(this.CULLTASK);
+		this.forked = true;
+		return true;
+	}
 
-				renderMode = Renderer2D.RenderMode.DISABLED;
-			}
-			((IRendererObject) entity).render(spriteBatch);
+	public void render(SpriteBatch spriteBatch, ShapeRenderer shapeRenderer) {
+		if (this.forked) {
+			this.CULLTASK.join();
+			this.forked = false;
+		} else {
+			final long START = Profiler.begin(this.cullSection);
+			this.cullingSystem.prepareCull();
+			this.cullingSystem.cull(Jemge.renderer2D.CAMERAVIEW);
+			Profiler.end(this.cullSection, START);
+		}
+		final long START = Profiler.begin(this.drawSection);
 
-			if (entity instanceof Actor) {
-				((Actor) entity).draw(spriteBatch, 1.0f);
+		renderMode = Renderer2D.RenderMode.INACTIVE;
+		this.lastTexture = null;
+		this.blendTogglesLastFrame = 0;
+		this.textureSwitchesLastFrame = 0;
+
+		final List<IEntity> LIST = this.cullingSystem.getFinalRenderList();
+		this.submittedLastFrame = this.cullingSystem.getObjectCount();
+		this.visibleLastFrame = LIST.size();
+		if (this.textureSorting) {
+			this.SORTER.sort(LIST);
+			for (int i = 0, size = this.SORTER.size(); i < size; i++) {
+				renderEntity(this.SORTER.get(i), spriteBatch, shapeRenderer);
+			}
+			this.SORTER.clear();
+		} else {
+			for (int i = 0, size = LIST.size(); i < size; i++) {
+				renderEntity(LIST.get(i), spriteBatch, shapeRenderer);
 			}
 		}
 
@@ -108,12 +194,14 @@ public class Layer {
 					&& !(renderMode == Renderer2D.RenderMode.ENABLED)) { // with
 																			// blending
 				spriteBatch.enableBlending();
+				this.blendTogglesLastFrame++;
 
 				renderMode = Renderer2D.RenderMode.ENABLED;
 			} else if (!((IRendererObject) object).hasTransparent()
 					&& !(renderMode == Renderer2D.RenderMode.DISABLED)) { // without
 																			// blending
 				spriteBatch.disableBlending();
+				this.blendTogglesLastFrame++;
 
 				renderMode = Renderer2D.RenderMode.DISABLED;
 			}
@@ -121,5 +209,59 @@ public class Layer {
 		}
 
 		this.cullingSystem.postRender();
+		Profiler.end(this.drawSection, START);
+	}
+
+	private void renderEntity(IEntity entity, SpriteBatch spriteBatch,
+			ShapeRenderer shapeRenderer) {
+		if (entity instanceof IShape) {
+			((IShape) entity).renderShape(shapeRenderer);
+			return;
+		}
+		if (!(entity instanceof IRendererObject)) {
+			return;
+		}
+
+		if (((IRendererObject) entity).hasTransparent()
+				&& !(renderMode == Renderer2D.RenderMode.ENABLED)) { // with
+																		// blending
+			spriteBatch.enableBlending();
+			this.blendTogglesLastFrame++;
+
+			renderMode = Renderer2D.RenderMode.ENABLED;
+		} else if (!((IRendererObject) entity).hasTransparent()
+				&& !(renderMode == Renderer2D.RenderMode.DISABLED)) { // without
+																		// blending
+			spriteBatch.disableBlending();
+			this.blendTogglesLastFrame++;
+
+			renderMode = Renderer2D.RenderMode.DISABLED;
+		}
+		if (entity instanceof TextureRegion) {
+			final Texture TEXTURE = ((TextureRegion) entity).getTexture();
+			if (TEXTURE != this.lastTexture) {
+				this.textureSwitchesLastFrame++;
+				this.lastTexture = TEXTURE;
+			}
+		}
+		((IRendererObject) entity).render(spriteBatch);
+
+		if (entity instanceof Actor) {
+			((Actor) entity).draw(spriteBatch, 1.0f);
+		}
+	}
+
+	/**
+	 * Draw opaque entities first, then transparent ones, both grouped by
+	 * texture. Saves SpriteBatch flushes, but entities of a layer no longer
+	 * overlap in the order they were added.
+	 */
+	public Layer setTextureSorting(boolean sort) {
+		this.textureSorting = sort;
+		return this;
+	}
+
+	public boolean getTextureSorting() {
+		return this.textureSorting;
 	}
 }
\ No newline at end of file
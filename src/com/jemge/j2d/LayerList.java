@@ -0,0 +1,136 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.j2d;
+
+import java.util.Arrays;
+
+/**
+ * The layers of the {@link Renderer2D}, sorted by their index. Lookups are a
+ * binary search on a primitive array, iterating uses a cached array that is
+ * only rebuilt after the layers changed.
+ *
+ * @see Renderer2D
+ */
+
+public class LayerList {
+	private static final Layer[] EMPTY = new Layer[0];
+
+	private int[] indices;
+	private Layer[] layers;
+	private int size;
+
+	private Layer[] snapshot = EMPTY;
+	private boolean dirty = false;
+
+	public LayerList() {
+		this.indices = new int[8];
+		this.layers = new Layer[8];
+	}
+
+	public Layer get(int index) {
+		final int POS = Arrays.binarySearch(this.indices, 0, this.size, index);
+		return POS < 0 ? null : this.layers[POS];
+	}
+
+	public boolean contains(int index) {
+		return Arrays.binarySearch(this.indices, 0, this.size, index) >= 0;
+	}
+
+	/**
+	 * Returns the layer with the given index, creates it if it doesn't exist.
+	 */
+	public Layer getOrCreate(int index) {
+		final int POS = Arrays.binarySearch(this.indices, 0, this.size, index);
+		if (POS >= 0) {
+			return this.layers[POS];
+		}
+
+		final Layer LAYER = new Layer();
+		insert(-(POS + 1), index, LAYER);
+		return LAYER;
+	}
+
+	/**
+	 * Sets the layer with the given index, replaces an existing one.
+	 *
+	 * @return the replaced layer or null
+	 */
+	public Layer put(int index, Layer layer) {
+		final int POS = Arrays.binarySearch(this.indices, 0, this.size, index);
+		if (POS >= 0) {
+			final Layer OLD = this.layers[POS];
+			this.layers[POS] = layer;
+			layer.setIndex(index);
+			this.dirty = true;
+			return OLD;
+		}
+
+		insert(-(POS + 1), index, layer);
+		return null;
+	}
+
+	public Layer remove(int index) {
+		final int POS = Arrays.binarySearch(this.indices, 0, this.size, index);
+		if (POS < 0) {
+			return null;
+		}
+
+		final Layer OLD = this.layers[POS];
+		System.arraycopy(this.indices, POS + 1, this.indices, POS, this.size
+				- POS - 1);
+		System.arraycopy(this.layers, POS + 1, this.layers, POS, this.size
+				- POS - 1);
+		this.layers[--this.size] = null;
+		this.dirty = true;
+		return OLD;
+	}
+
+	private void insert(int pos, int index, Layer layer) {
+		if (this.size == this.indices.length) {
+			this.indices = Arrays.copyOf(this.indices, this.size * 2);
+			this.layers = Arrays.copyOf(this.layers, this.size * 2);
+		}
+
+		System.arraycopy(this.indices, pos, this.indices, pos + 1, this.size
+				- pos);
+		System.arraycopy(this.layers, pos, this.layers, pos + 1, this.size
+				- pos);
+		this.indices[pos] = index;
+		this.layers[pos] = layer;
+		layer.setIndex(index);
+		this.size++;
+		this.dirty = true;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the layers sorted from the lowest to the highest index. The
+	 *         array is shared and must not be modified, it stays valid if
+	 *         layers are added or removed while iterating.
+	 */
+	public Layer[] getLayers() {
+		if (this.dirty) {
+			this.snapshot = Arrays.copyOf(this.layers, this.size);
+			this.dirty = false;
+		}
+
+		return this.snapshot;
+	}
+}
@@ -30,11 +30,12 @@ import com.jemge.box2d.Physics2D;
 import com.jemge.box2d.box2dLight.RayHandler;
 import com.jemge.core.EngineConfiguration;
 import com.jemge.core.Jemge;
+import com.jemge.core.debug.Metrics;
 import com.jemge.core.debug.Profiler;
 import com.jemge.input.IInputListener;
 import com.jemge.input.InputManager;
 
-import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The renderer class. The rendering is done automatically, you just have to add
@@ -45,8 +46,22 @@ import java.util.HashMap;
  */
 
 public class Renderer2D implements Disposable {
+	private static final int RENDER = Profiler.register("Renderer2D");
+	private static final int PREPARE = Profiler
+			.register("Renderer2D prepare");
+	private static final int RENDERING = Profiler
+			.register("Renderer2D rendering");
+	private static final int UI = Profiler.register("JUIManager render");
+
+	private static final int DRAW_CALLS = Metrics.register("draw calls");
+	private static final int FLUSHES = Metrics.register("batch flushes");
+	private static final int BLEND_TOGGLES = Metrics.register("blend toggles");
+	private static final int SUBMITTED = Metrics.register("entities submitted");
+	private static final int VISIBLE = Metrics.register("entities visible");
+	// layer index to the ids of its submitted and culled metrics
+
 	// Private
-	public final HashMap<Integer, Layer> RENDERTARGETS;
+	public final LayerList RENDERTARGETS;
 	private final SpriteBatch SPRITEBATCH;
 	private final ShapeRenderer SHAPERENDERER;
 	private final OrthographicCamera CAMERA;
@@ -58,17 +73,28 @@ public class Renderer2D implements Disposable {
 	private final JUIManager JUIMANAGER;
 
 	private RayHandler rayHandler;
+	private ForkJoinPool cullingPool;
 
 	// public
 
 	public final Rectangle CAMERAVIEW;
 
+	/**
+	 * draw calls of the SpriteBatch in the last frame
+	 */
+	public int renderCallsLastFrame = 0;
+	/**
+	 * blending and texture switches of all layers in the last frame, each one
+	 * flushes the SpriteBatch
+	 */
+	public int flushesLastFrame = 0;
+
 	public enum RenderMode {
 		INACTIVE, ENABLED, DISABLED
 	}
 
 	public Renderer2D() {
-		this.RENDERTARGETS = new HashMap<>();
+		this.RENDERTARGETS = new LayerList();
 
 		this.CAMERA = new OrthographicCamera();
 		this.CAMERA.setToOrtho(false, Gdx.graphics.getWidth(),
@@ -106,13 +132,11 @@ public class Renderer2D implements Disposable {
 	 */
 
 	public Object add(int layer, Object rendererObject) {
-		if (!this.RENDERTARGETS.keySet().contains(layer)) {
-			this.RENDERTARGETS.put(layer, new Layer());
-		}
-		this.RENDERTARGETS.get(layer).addObject(rendererObject);
+		this.RENDERTARGETS.getOrCreate(layer).addObject(rendererObject);
 
 		if (rendererObject instanceof IInputListener) {
-			this.INPUTMANAGER.addListener((IInputListener) rendererObject);
+			this.INPUTMANAGER.addListener((IInputListener) rendererObject,
+					layer);
 		}
 
 		return rendererObject;
@@ -161,9 +185,9 @@ public class Renderer2D implements Disposable {
 	 */
 
 	public void render() {
-		Profiler.start(this, "");
+		final long START = Profiler.begin(RENDER);
 
-		Profiler.start(this, "prepare");
+		long start = Profiler.begin(PREPARE);
 		Gdx.gl20.glClearColor(this.BACKGROUND.getColor().r,
 				this.BACKGROUND.getColor().g, this.BACKGROUND.getColor().b, 0);
 		Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT);
@@ -177,26 +201,54 @@ public class Renderer2D implements Disposable {
 		this.SPRITEBATCH.setProjectionMatrix(this.CAMERA.combined);
 		this.SHAPERENDERER.setProjectionMatrix(this.CAMERA.combined);
 
-		Profiler.stop(this, "prepare");
+		// the culling runs while the background is drawn, the draw loop waits
+		// for each layer
+		if (EngineConfiguration.parallelCulling) {
+			if (this.cullingPool == null) {
+				this.cullingPool = new ForkJoinPool();
+			}
+			for (Layer layer : this.RENDERTARGETS.getLayers()) {
+				layer.forkCull(this.cullingPool, this.CAMERAVIEW);
+			}
+		}
 
-		Profiler.start(this, "rendering");
+		Profiler.end(PREPARE, start);
+
+		start = Profiler.begin(RENDERING);
 		this.SPRITEBATCH.begin();
 		this.BACKGROUND.update(this.SPRITEBATCH);
 
-		for (Layer layer : this.RENDERTARGETS.values()) {
-			layer.render(this.SPRITEBATCH, this.SHAPERENDERER);
+		this.flushesLastFrame = 0;
+		final Layer[] LAYERS = this.RENDERTARGETS.getLayers();
+		for (int i = 0; i < LAYERS.length; i++) {
+			final Layer LAYER = LAYERS[i];
+			LAYER.render(this.SPRITEBATCH, this.SHAPERENDERER);
+			this.flushesLastFrame += LAYER.blendTogglesLastFrame
+					+ LAYER.textureSwitchesLastFrame;
+
+			Metrics.add(BLEND_TOGGLES, LAYER.blendTogglesLastFrame);
+			Metrics.add(SUBMITTED, LAYER.submittedLastFrame);
+			Metrics.add(VISIBLE, LAYER.visibleLastFrame);
+			Metrics.set(LAYER.submittedMetric, LAYER.submittedLastFrame);
+			Metrics.set(LAYER.culledMetric, LAYER.submittedLastFrame
+					- LAYER.visibleLastFrame);
 		}
 
 		this.SPRITEBATCH.end();
-		Profiler.stop(this, "rendering");
+		this.renderCallsLastFrame = this.SPRITEBATCH.renderCalls;
+		Metrics.set(DRAW_CALLS, this.renderCallsLastFrame);
+		Metrics.set(FLUSHES, this.flushesLastFrame);
+		Profiler.end(RENDERING, start);
 
 		if (this.rayHandler != null) {
 			this.rayHandler.setCombinedMatrix(this.CAMERA.combined);
 			this.rayHandler.updateAndRender();
 		}
+		start = Profiler.begin(UI);
 		JUIMANAGER.render();
+		Profiler.end(UI, start);
 
-		Profiler.stop(this, "");
+		Profiler.end(RENDER, START);
 
 		if (EngineConfiguration.debugPhysic) {
 			debugRenderer
@@ -226,6 +278,9 @@ public class Renderer2D implements Disposable {
 		if (this.rayHandler != null) {
 			this.rayHandler.dispose();
 		}
+		if (this.cullingPool != null) {
+			this.cullingPool.shutdown();
+		}
 	}
 
 	/**
@@ -0,0 +1,86 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.j2d;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorts a render list so opaque entities come first, then transparent ones,
+ * each group ordered by texture. Entities with the same key keep their order.
+ * The arrays are reused, sorting doesn't allocate once they are big enough.
+ *
+ * @see Layer#setTextureSorting(boolean)
+ */
+
+class TextureSorter {
+	private long[] keys = new long[256];
+	private IEntity[] sorted = new IEntity[256];
+	private int size;
+
+	public void sort(List<IEntity> list) {
+		this.size = list.size();
+		if (this.keys.length < this.size) {
+			this.keys = new long[this.size * 2];
+			this.sorted = new IEntity[this.size * 2];
+		}
+
+		// key: transparent bit | texture handle | position in the list, the
+		// sign bit stays clear so transparent keys sort last
+		for (int i = 0; i < this.size; i++) {
+			final IEntity ENTITY = list.get(i);
+			final boolean TRANSPARENT = ENTITY instanceof IRendererObject
+					&& ((IRendererObject) ENTITY).hasTransparent();
+			this.keys[i] = (TRANSPARENT ? 1L << 62 : 0)
+					| (textureHandle(ENTITY) & 0x3FFFFFFFL) << 32 | i;
+		}
+		Arrays.sort(this.keys, 0, this.size);
+
+		for (int i = 0; i < this.size; i++) {
+			this.sorted[i] = list.get((int) this.keys[i]);
+		}
+	}
+
+	private static int textureHandle(IEntity entity) {
+		if (entity instanceof TextureRegion) {
+			final Texture TEXTURE = ((TextureRegion) entity).getTexture();
+			if (TEXTURE != null) {
+				return TEXTURE.getTextureObjectHandle();
+			}
+		}
+		return 0;
+	}
+
+	public IEntity get(int index) {
+		return this.sorted[index];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Drops the references of the last sort.
+	 */
+	public void clear() {
+		Arrays.fill(this.sorted, 0, this.size, null);
+		this.size = 0;
+	}
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.j2d.culling;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.List;
+
+/**
+ * Dynamic AABB tree, modelled after the broad-phase tree of Box2D. Leaves hold
+ * a fattened box around the user object, so small movements don't need a
+ * reinsert. Nodes are kept in flat arrays and recycled through a free list, so
+ * moving a proxy doesn't allocate.
+ *
+ * @param <T>
+ *            user data stored in the leaves
+ */
+
+public class DynamicTree<T> {
+	public static final int NULL_NODE = -1;
+
+	private float[] lowerX, lowerY, upperX, upperY;
+	private int[] parent, child1, child2, height;
+	private Object[] userData;
+
+	private int root = NULL_NODE;
+	private int nodeCount;
+	private int freeList;
+	private int[] stack = new int[64];
+
+	public DynamicTree() {
+		allocate(16);
+	}
+
+	private void allocate(int capacity) {
+		final int OLD = this.parent == null ? 0 : this.parent.length;
+
+		this.lowerX = copy(this.lowerX, capacity);
+		this.lowerY = copy(this.lowerY, capacity);
+		this.upperX = copy(this.upperX, capacity);
+		this.upperY = copy(this.upperY, capacity);
+		this.parent = copy(this.parent, capacity);
+		this.child1 = copy(this.child1, capacity);
+		this.child2 = copy(this.child2, capacity);
+		this.height = copy(this.height, capacity);
+
+		final Object[] DATA = new Object[capacity];
+		if (this.userData != null) {
+			System.arraycopy(this.userData, 0, DATA, 0, OLD);
+		}
+		this.userData = DATA;
+
+		// link the new nodes into the free list, parent is used as "next"
+		for (int i = OLD; i < capacity - 1; i++) {
+			this.parent[i] = i + 1;
+			this.height[i] = -1;
+		}
+		this.parent[capacity - 1] = NULL_NODE;
+		this.height[capacity - 1] = -1;
+		this.freeList = OLD;
+	}
+
+	private static float[] copy(float[] array, int capacity) {
+		final float[] COPY = new float[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, COPY, 0, array.length);
+		}
+		return COPY;
+	}
+
+	private static int[] copy(int[] array, int capacity) {
+		final int[] COPY = new int[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, COPY, 0, array.length);
+		}
+		return COPY;
+	}
+
+	private int allocateNode() {
+		if (this.freeList == NULL_NODE) {
+			allocate(this.parent.length * 2);
+		}
+
+		final int NODE = this.freeList;
+		this.freeList = this.parent[NODE];
+		this.parent[NODE] = NULL_NODE;
+		this.child1[NODE] = NULL_NODE;
+		this.child2[NODE] = NULL_NODE;
+		this.height[NODE] = 0;
+		this.userData[NODE] = null;
+		this.nodeCount++;
+		return NODE;
+	}
+
+	private void freeNode(int node) {
+		this.parent[node] = this.freeList;
+		this.height[node] = -1;
+		this.userData[node] = null;
+		this.freeList = node;
+		this.nodeCount--;
+	}
+
+	/**
+	 * Creates a proxy for the given bounds, fattened by margin.
+	 *
+	 * @return the proxy id
+	 */
+	public int createProxy(Rectangle bounds, float margin, T data) {
+		final int PROXY = allocateNode();
+		setFatBounds(PROXY, bounds, margin);
+		this.userData[PROXY] = data;
+		insertLeaf(PROXY);
+		return PROXY;
+	}
+
+	public void destroyProxy(int proxy) {
+		removeLeaf(proxy);
+		freeNode(proxy);
+	}
+
+	/**
+	 * Moves a proxy. Nothing happens while the bounds stay inside of the fat
+	 * box of the proxy.
+	 *
+	 * @return true if the proxy was reinserted
+	 */
+	public boolean moveProxy(int proxy, Rectangle bounds, float margin) {
+		if (this.lowerX[proxy] <= bounds.x && this.lowerY[proxy] <= bounds.y
+				&& bounds.x + bounds.width <= this.upperX[proxy]
+				&& bounds.y + bounds.height <= this.upperY[proxy]) {
+			return false;
+		}
+
+		removeLeaf(proxy);
+		setFatBounds(proxy, bounds, margin);
+		insertLeaf(proxy);
+		return true;
+	}
+
+	private void setFatBounds(int node, Rectangle bounds, float margin) {
+		this.lowerX[node] = bounds.x - margin;
+		this.lowerY[node] = bounds.y - margin;
+		this.upperX[node] = bounds.x + bounds.width + margin;
+		this.upperY[node] = bounds.y + bounds.height + margin;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getUserData(int proxy) {
+		return (T) this.userData[proxy];
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * Adds the user data of every leaf whose fat box overlaps the area to the
+	 * list.
+	 */
+	@SuppressWarnings("unchecked")
+	public void query(Rectangle area, List<? super T> list) {
+		if (this.root == NULL_NODE) {
+			return;
+		}
+
+		final float AX1 = area.x, AY1 = area.y;
+		final float AX2 = area.x + area.width, AY2 = area.y + area.height;
+
+		int top = 0;
+		this.stack[top++] = this.root;
+		while (top > 0) {
+			final int NODE = this.stack[--top];
+			if (this.upperX[NODE] < AX1 || this.lowerX[NODE] > AX2
+					|| this.upperY[NODE] < AY1 || this.lowerY[NODE] > AY2) {
+				continue;
+			}
+
+			if (this.child1[NODE] == NULL_NODE) {
+				list.add((T) this.userData[NODE]);
+				continue;
+			}
+
+			if (top + 2 > this.stack.length) {
+				final int[] STACK = new int[this.stack.length * 2];
+				System.arraycopy(this.stack, 0, STACK, 0, top);
+				this.stack = STACK;
+			}
+			this.stack[top++] = this.child1[NODE];
+			this.stack[top++] = this.child2[NODE];
+		}
+	}
+
+	private float perimeter(int node) {
+		return 2f * ((this.upperX[node] - this.lowerX[node])
+				+ (this.upperY[node] - this.lowerY[node]));
+	}
+
+	private float combinedPerimeter(int a, int b) {
+		final float WIDTH = Math.max(this.upperX[a], this.upperX[b])
+				- Math.min(this.lowerX[a], this.lowerX[b]);
+		final float HEIGHT = Math.max(this.upperY[a], this.upperY[b])
+				- Math.min(this.lowerY[a], this.lowerY[b]);
+		return 2f * (WIDTH + HEIGHT);
+	}
+
+	private void combine(int node, int a, int b) {
+		this.lowerX[node] = Math.min(this.lowerX[a], this.lowerX[b]);
+		this.lowerY[node] = Math.min(this.lowerY[a], this.lowerY[b]);
+		this.upperX[node] = Math.max(this.upperX[a], this.upperX[b]);
+		this.upperY[node] = Math.max(this.upperY[a], this.upperY[b]);
+	}
+
+	private void insertLeaf(int leaf) {
+		if (this.root == NULL_NODE) {
+			this.root = leaf;
+			this.parent[leaf] = NULL_NODE;
+			return;
+		}
+
+		// find the best sibling, using the surface area heuristic
+		int index = this.root;
+		while (this.child1[index] != NULL_NODE) {
+			final int C1 = this.child1[index];
+			final int C2 = this.child2[index];
+
+			final float AREA = perimeter(index);
+			final float COMBINED = combinedPerimeter(index, leaf);
+
+			final float COST = 2f * COMBINED;
+			final float INHERITANCE = 2f * (COMBINED - AREA);
+
+			final float COST1 = childCost(C1, leaf) + INHERITANCE;
+			final float COST2 = childCost(C2, leaf) + INHERITANCE;
+
+			if (COST < COST1 && COST < COST2) {
+				break;
+			}
+			index = COST1 < COST2 ? C1 : C2;
+		}
+
+		final int SIBLING = index;
+		final int OLD_PARENT = this.parent[SIBLING];
+		final int NEW_PARENT = allocateNode();
+		this.parent[NEW_PARENT] = OLD_PARENT;
+		combine(NEW_PARENT, leaf, SIBLING);
+		this.height[NEW_PARENT] = this.height[SIBLING] + 1;
+
+		if (OLD_PARENT != NULL_NODE) {
+			if (this.child1[OLD_PARENT] == SIBLING) {
+				this.child1[OLD_PARENT] = NEW_PARENT;
+			} else {
+				this.child2[OLD_PARENT] = NEW_PARENT;
+			}
+		} else {
+			this.root = NEW_PARENT;
+		}
+		this.child1[NEW_PARENT] = SIBLING;
+		this.child2[NEW_PARENT] = leaf;
+		this.parent[SIBLING] = NEW_PARENT;
+		this.parent[leaf] = NEW_PARENT;
+
+		refit(this.parent[leaf]);
+	}
+
+	private float childCost(int child, int leaf) {
+		if (this.child1[child] == NULL_NODE) {
+			return combinedPerimeter(child, leaf);
+		}
+		return combinedPerimeter(child, leaf) - perimeter(child);
+	}
+
+	private void removeLeaf(int leaf) {
+		if (leaf == this.root) {
+			this.root = NULL_NODE;
+			return;
+		}
+
+		final int PARENT = this.parent[leaf];
+		final int GRAND_PARENT = this.parent[PARENT];
+		final int SIBLING = this.child1[PARENT] == leaf ? this.child2[PARENT]
+				: this.child1[PARENT];
+
+		if (GRAND_PARENT != NULL_NODE) {
+			if (this.child1[GRAND_PARENT] == PARENT) {
+				this.child1[GRAND_PARENT] = SIBLING;
+			} else {
+				this.child2[GRAND_PARENT] = SIBLING;
+			}
+			this.parent[SIBLING] = GRAND_PARENT;
+			freeNode(PARENT);
+
+			refit(GRAND_PARENT);
+		} else {
+			this.root = SIBLING;
+			this.parent[SIBLING] = NULL_NODE;
+			freeNode(PARENT);
+		}
+	}
+
+	/**
+	 * Walks back up the tree, rebalancing and fixing heights and boxes.
+	 */
+	private void refit(int index) {
+		while (index != NULL_NODE) {
+			index = balance(index);
+
+			final int C1 = this.child1[index];
+			final int C2 = this.child2[index];
+			this.height[index] = 1 + Math.max(this.height[C1], this.height[C2]);
+			combine(index, C1, C2);
+
+			index = this.parent[index];
+		}
+	}
+
+	/**
+	 * Performs a left or right rotation if node a is imbalanced.
+	 *
+	 * @return the new root of the subtree
+	 */
+	private int balance(int a) {
+		if (this.child1[a] == NULL_NODE || this.height[a] < 2) {
+			return a;
+		}
+
+		final int B = this.child1[a];
+		final int C = this.child2[a];
+		final int BALANCE = this.height[C] - this.height[B];
+
+		if (BALANCE > 1) {
+			return rotate(a, C, B);
+		}
+		if (BALANCE < -1) {
+			return rotate(a, B, C);
+		}
+		return a;
+	}
+
+	/**
+	 * Rotates the higher child up, the lower child stays with a.
+	 */
+	private int rotate(int a, int up, int other) {
+		final int F = this.child1[up];
+		final int G = this.child2[up];
+
+		// swap a and up
+		this.child1[up] = a;
+		this.parent[up] = this.parent[a];
+		this.parent[a] = up;
+
+		if (this.parent[up] != NULL_NODE) {
+			if (this.child1[this.parent[up]] == a) {
+				this.child1[this.parent[up]] = up;
+			} else {
+				this.child2[this.parent[up]] = up;
+			}
+		} else {
+			this.root = up;
+		}
+
+		// keep the higher grand child with up
+		final int KEEP = this.height[F] > this.height[G] ? F : G;
+		final int MOVE = KEEP == F ? G : F;
+
+		this.child2[up] = KEEP;
+		if (this.child1[a] == up) {
+			this.child1[a] = MOVE;
+		} else {
+			this.child2[a] = MOVE;
+		}
+		this.parent[MOVE] = a;
+
+		combine(a, other, MOVE);
+		combine(up, a, KEEP);
+
+		this.height[a] = 1 + Math.max(this.height[other], this.height[MOVE]);
+		this.height[up] = 1 + Math.max(this.height[a], this.height[KEEP]);
+
+		return up;
+	}
+}
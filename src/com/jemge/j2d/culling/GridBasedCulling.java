@@ -0,0 +1,195 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.j2d.culling;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.LongMap;
+import com.jemge.core.debug.Profiler;
+import com.jemge.j2d.IEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Uniform grid culling. Static entities are stored in every cell their
+ * rectangle touches, cells are addressed by integer coordinates, so insert,
+ * remove and {@link #cull(Rectangle)} only visit the cells they touch.
+ * <p/>
+ * Use it with
+ * <code>EngineConfiguration.cullingSystem = new GridBasedCulling();</code>
+ *
+ * @see ZoneBasedCulling
+ */
+
+public class GridBasedCulling implements ICullingSystem {
+	public static final float CELL_SIZE = ZoneBasedCulling.ZONE_SIZE;
+
+	private static final int NEW_OBJECT = Profiler
+			.register("GridBasedCulling new object");
+	private static final int CULL = Profiler.register("GridBasedCulling cull");
+	private final LongMap<ArrayList<GridEntry>> CELLS;
+	private final HashMap<IEntity, GridEntry> ENTRIES;
+	private final ArrayList<IEntity> DYNAMIC_OBJECTS;
+	private final ArrayList<IEntity> FINAL_RENDER_LIST;
+
+	/**
+	 * An entity and the range of cells it was inserted into.
+	 */
+	protected static final class GridEntry {
+		protected final IEntity ENTITY;
+		protected final Rectangle BOUNDS;
+		protected int minX, minY, maxX, maxY;
+
+		protected GridEntry(IEntity entity) {
+			this.ENTITY = entity;
+			this.BOUNDS = new Rectangle(entity.getRectangle());
+			this.minX = cell(this.BOUNDS.x);
+			this.minY = cell(this.BOUNDS.y);
+			this.maxX = cell(this.BOUNDS.x + this.BOUNDS.width);
+			this.maxY = cell(this.BOUNDS.y + this.BOUNDS.height);
+		}
+	}
+
+	public GridBasedCulling() {
+		this.CELLS = new LongMap<ArrayList<GridEntry>>();
+		this.ENTRIES = new HashMap<IEntity, GridEntry>();
+		this.DYNAMIC_OBJECTS = new ArrayList<IEntity>(32);
+		this.FINAL_RENDER_LIST = new ArrayList<IEntity>(256);
+	}
+
+	protected static int cell(float position) {
+		return (int) Math.floor(position / CELL_SIZE);
+	}
+
+	protected static long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	@Override
+	public void putObject(IEntity object) {
+		final long START = Profiler.begin(NEW_OBJECT);
+
+		if (!object.getData("static")) {
+			this.DYNAMIC_OBJECTS.add(object);
+			return;
+		}
+		if (this.ENTRIES.containsKey(object)) {
+			return;
+		}
+
+		final GridEntry ENTRY = new GridEntry(object);
+		this.ENTRIES.put(object, ENTRY);
+
+		for (int x = ENTRY.minX; x <= ENTRY.maxX; x++) {
+			for (int y = ENTRY.minY; y <= ENTRY.maxY; y++) {
+				final long KEY = key(x, y);
+				ArrayList<GridEntry> list = this.CELLS.get(KEY);
+				if (list == null) {
+					list = new ArrayList<GridEntry>();
+					this.CELLS.put(KEY, list);
+				}
+				list.add(ENTRY);
+			}
+		}
+
+		Profiler.end(NEW_OBJECT, START);
+	}
+
+	@Override
+	public void removeObject(IEntity object) {
+		final GridEntry ENTRY = this.ENTRIES.remove(object);
+		if (ENTRY == null) {
+			this.DYNAMIC_OBJECTS.remove(object);
+			return;
+		}
+
+		for (int x = ENTRY.minX; x <= ENTRY.maxX; x++) {
+			for (int y = ENTRY.minY; y <= ENTRY.maxY; y++) {
+				final long KEY = key(x, y);
+				final ArrayList<GridEntry> LIST = this.CELLS.get(KEY);
+				if (LIST == null) {
+					continue;
+				}
+				LIST.remove(ENTRY);
+				if (LIST.isEmpty()) {
+					this.CELLS.remove(KEY);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void prepareCull() {
+	}
+
+	@Override
+	public void cull(Rectangle camera_view) {
+		final long START = Profiler.begin(CULL);
+
+		this.FINAL_RENDER_LIST.clear();
+
+		final int MINX = cell(camera_view.x);
+		final int MINY = cell(camera_view.y);
+		final int MAXX = cell(camera_view.x + camera_view.width);
+		final int MAXY = cell(camera_view.y + camera_view.height);
+
+		for (int x = MINX; x <= MAXX; x++) {
+			for (int y = MINY; y <= MAXY; y++) {
+				final ArrayList<GridEntry> LIST = this.CELLS.get(key(x, y));
+				if (LIST == null) {
+					continue;
+				}
+				for (int i = 0, size = LIST.size(); i < size; i++) {
+					final GridEntry ENTRY = LIST.get(i);
+					// an entity spanning several cells is only reported by the
+					// first visible cell it is in, so no duplicates
+					if (x != Math.max(ENTRY.minX, MINX)
+							|| y != Math.max(ENTRY.minY, MINY)) {
+						continue;
+					}
+					if (ENTRY.BOUNDS.overlaps(camera_view)) {
+						this.FINAL_RENDER_LIST.add(ENTRY.ENTITY);
+					}
+				}
+			}
+		}
+		if (!this.DYNAMIC_OBJECTS.isEmpty()) {
+			this.FINAL_RENDER_LIST.addAll(this.DYNAMIC_OBJECTS);
+		}
+
+		Profiler.end(CULL, START);
+	}
+
+	@Override
+	public ArrayList<IEntity> getFinalRenderList() {
+		return this.FINAL_RENDER_LIST;
+	}
+
+	@Override
+	public void postRender() {
+	}
+
+	@Override
+	public int getObjectCount() {
+		return this.ENTRIES.size() + this.DYNAMIC_OBJECTS.size();
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+}
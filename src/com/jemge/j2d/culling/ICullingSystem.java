@@ -21,14 +21,45 @@ import com.jemge.j2d.IEntity;
 
 import java.util.List;
 
+/**
+ * Decides which entities of a {@link com.jemge.j2d.Layer} get rendered.
+ * <p/>
+ * Thread safety: if {@link #isThreadSafe()} returns true,
+ * {@link #cull(Rectangle)} may be called from a worker thread while other
+ * layers are culled or drawn (see
+ * {@link com.jemge.core.EngineConfiguration#parallelCulling}). Those layers
+ * update and move their entities meanwhile, and getters like
+ * {@link IEntity#getRectangle()} of a sprite rewrite its bounds, so the cull
+ * then must only change the state of this instance and read the camera view,
+ * but never call the entities. What it needs of them is copied in
+ * {@link #prepareCull()}. All other methods are always called on the GL
+ * thread, never at the same time as {@link #cull(Rectangle)}.
+ */
+
 public interface ICullingSystem {
 	public void putObject(IEntity entity);
 
 	public void removeObject(IEntity entity);
 
+	/**
+	 * Called on the GL thread right before every {@link #cull(Rectangle)},
+	 * also when the cull runs on a worker thread.
+	 */
+	public void prepareCull();
+
 	public void cull(Rectangle camera_view);
 
 	public List<IEntity> getFinalRenderList();
 
 	public void postRender();
+
+	/**
+	 * @return number of entities in the culling system
+	 */
+	public int getObjectCount();
+
+	/**
+	 * @return true if {@link #cull(Rectangle)} can run off the GL thread.
+	 */
+	public boolean isThreadSafe();
 }
\ No newline at end of file
@@ -26,6 +26,10 @@ public class ScissorStackClipping implements ICullingSystem {
 		ENTITIES.remove(entity);
 	}
 
+	@Override
+	public void prepareCull() {
+	}
+
 	@Override
 	public void cull(Rectangle camera_view) {
 		ScissorStack.calculateScissors(Jemge.renderer2D.getCamera(),
@@ -43,4 +47,14 @@ public class ScissorStackClipping implements ICullingSystem {
 	public void postRender() {
 		ScissorStack.popScissors();
 	}
+
+	@Override
+	public int getObjectCount() {
+		return ENTITIES.size();
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.j2d.culling;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.jemge.core.debug.Profiler;
+import com.jemge.j2d.IEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Culling with a {@link DynamicTree}. Static and moving entities share the
+ * tree, every frame the moving entities are checked against their fat box and
+ * only the ones that left it are reinserted. Only visible entities end up in
+ * the final render list.
+ * <p/>
+ * Use it with
+ * <code>EngineConfiguration.cullingSystem = new TreeBasedCulling();</code>
+ */
+
+public class TreeBasedCulling implements ICullingSystem {
+	/**
+	 * How much the boxes of moving entities are enlarged, in world units.
+	 */
+	public static float fatMargin = 32f;
+
+	private static final int CULL = Profiler.register("TreeBasedCulling cull");
+
+	private final DynamicTree<Proxy> TREE;
+	private final HashMap<IEntity, Proxy> PROXIES;
+	private final ArrayList<Proxy> DYNAMIC_OBJECTS;
+	private final ArrayList<Proxy> CANDIDATES;
+	private final ArrayList<IEntity> FINAL_RENDER_LIST;
+
+	private static final class Proxy {
+		private final IEntity ENTITY;
+		// copy of the entity bounds, taken on the GL thread
+		private final Rectangle BOUNDS;
+		private int id;
+		private int index = -1; // index in DYNAMIC_OBJECTS
+
+		private Proxy(IEntity entity) {
+			this.ENTITY = entity;
+			this.BOUNDS = new Rectangle(entity.getRectangle());
+		}
+	}
+
+	public TreeBasedCulling() {
+		this.TREE = new DynamicTree<Proxy>();
+		this.PROXIES = new HashMap<IEntity, Proxy>();
+		this.DYNAMIC_OBJECTS = new ArrayList<Proxy>(32);
+		this.CANDIDATES = new ArrayList<Proxy>(256);
+		this.FINAL_RENDER_LIST = new ArrayList<IEntity>(256);
+	}
+
+	@Override
+	public void putObject(IEntity entity) {
+		if (this.PROXIES.containsKey(entity)) {
+			return;
+		}
+
+		final boolean STATIC = entity.getData("static");
+		final Proxy PROXY = new Proxy(entity);
+		PROXY.id = this.TREE.createProxy(PROXY.BOUNDS, STATIC ? 0f
+				: fatMargin, PROXY);
+		this.PROXIES.put(entity, PROXY);
+
+		if (!STATIC) {
+			PROXY.index = this.DYNAMIC_OBJECTS.size();
+			this.DYNAMIC_OBJECTS.add(PROXY);
+		}
+	}
+
+	@Override
+	public void removeObject(IEntity entity) {
+		final Proxy PROXY = this.PROXIES.remove(entity);
+		if (PROXY == null) {
+			return;
+		}
+
+		this.TREE.destroyProxy(PROXY.id);
+
+		if (PROXY.index != -1) {
+			// swap with the last one, so removing is O(1)
+			final Proxy LAST = this.DYNAMIC_OBJECTS.remove(this.DYNAMIC_OBJECTS
+					.size() - 1);
+			if (LAST != PROXY) {
+				LAST.index = PROXY.index;
+				this.DYNAMIC_OBJECTS.set(PROXY.index, LAST);
+			}
+		}
+	}
+
+	@Override
+	public void prepareCull() {
+		for (int i = 0, size = this.DYNAMIC_OBJECTS.size(); i < size; i++) {
+			final Proxy PROXY = this.DYNAMIC_OBJECTS.get(i);
+			PROXY.BOUNDS.set(PROXY.ENTITY.getRectangle());
+		}
+	}
+
+	@Override
+	public void cull(Rectangle camera_view) {
+		final long START = Profiler.begin(CULL);
+
+		for (int i = 0, size = this.DYNAMIC_OBJECTS.size(); i < size; i++) {
+			final Proxy PROXY = this.DYNAMIC_OBJECTS.get(i);
+			this.TREE.moveProxy(PROXY.id, PROXY.BOUNDS, fatMargin);
+		}
+
+		this.CANDIDATES.clear();
+		this.TREE.query(camera_view, this.CANDIDATES);
+
+		// fat boxes are bigger than the entity, check the real bounds
+		this.FINAL_RENDER_LIST.clear();
+		for (int i = 0, size = this.CANDIDATES.size(); i < size; i++) {
+			final Proxy PROXY = this.CANDIDATES.get(i);
+			if (camera_view.overlaps(PROXY.BOUNDS)) {
+				this.FINAL_RENDER_LIST.add(PROXY.ENTITY);
+			}
+		}
+
+		Profiler.end(CULL, START);
+	}
+
+	@Override
+	public ArrayList<IEntity> getFinalRenderList() {
+		return this.FINAL_RENDER_LIST;
+	}
+
+	@Override
+	public void postRender() {
+	}
+
+	@Override
+	public int getObjectCount() {
+		return this.PROXIES.size();
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+}
@@ -25,9 +25,14 @@ import java.util.HashMap;
 
 public class ZoneBasedCulling implements ICullingSystem {
 	public static final float ZONE_SIZE = 1024;
+
+	private static final int NEW_OBJECT = Profiler
+			.register("ZoneBasedCulling new object");
+	private static final int CULL = Profiler.register("ZoneBasedCulling cull");
 	private final HashMap<CullingZone, ArrayList<IEntity>> ZONE_MAP;
 	private final ArrayList<IEntity> DYNAMIC_OBJECTS;
 	private final ArrayList<IEntity> FINAL_RENDER_LIST;
+	private int staticCount = 0; // entities in the zones
 
 	public ZoneBasedCulling() {
 		this.ZONE_MAP = new HashMap<CullingZone, ArrayList<IEntity>>();
@@ -36,7 +41,7 @@ public class ZoneBasedCulling implements ICullingSystem {
 	}
 
 	public void putObject(IEntity object) {
-		Profiler.start(this, "new object");
+		final long START = Profiler.begin(NEW_OBJECT);
 
 		if (!object.getData("static")) {
 			this.DYNAMIC_OBJECTS.add(object);
@@ -50,15 +55,18 @@ public class ZoneBasedCulling implements ICullingSystem {
 		} else {
 			this.ZONE_MAP.get(existZone(object)).add(object);
 		}
+		this.staticCount++;
 
-		Profiler.stop(this, "new object");
+		Profiler.end(NEW_OBJECT, START);
 	}
 
 	public void removeObject(IEntity object) {
 		if (!object.getData("static")) {
 			this.DYNAMIC_OBJECTS.remove(object);
 		} else {
-			this.ZONE_MAP.get(existZone(object)).remove(object);
+			if (this.ZONE_MAP.get(existZone(object)).remove(object)) {
+				this.staticCount--;
+			}
 		}
 	}
 
@@ -84,8 +92,12 @@ public class ZoneBasedCulling implements ICullingSystem {
 		return this.ZONE_MAP.get(zone);
 	}
 
+	@Override
+	public void prepareCull() {
+	}
+
 	public void cull(Rectangle camera_view) {
-		Profiler.start(this, "cull");
+		final long START = Profiler.begin(CULL);
 
 		this.FINAL_RENDER_LIST.clear();
 		for (CullingZone zone : this.ZONE_MAP.keySet()) {
@@ -97,7 +109,7 @@ public class ZoneBasedCulling implements ICullingSystem {
 			this.FINAL_RENDER_LIST.addAll(this.DYNAMIC_OBJECTS);
 		}
 
-		Profiler.stop(this, "cull");
+		Profiler.end(CULL, START);
 	}
 
 	public ArrayList<IEntity> getFinalRenderList() {
@@ -107,4 +119,15 @@ public class ZoneBasedCulling implements ICullingSystem {
 	@Override
 	public void postRender() {
 	}
+
+	@Override
+	public int getObjectCount() {
+		return this.DYNAMIC_OBJECTS.size() + this.staticCount;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		// the zones ask the entities themselves via needRender()
+		return false;
+	}
 }
\ No newline at end of file
@@ -2,14 +2,34 @@ package com.jemge.resource;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
 
 public class AudioResource implements IResource {
 	private final String NAME;
 	private final Sound SOUND;
+	private final long SIZE;
 
 	public AudioResource(String name) {
 		this.NAME = name;
 		this.SOUND = Gdx.audio.newSound(Gdx.files.internal(name));
+		this.SIZE = estimateSize(Gdx.files.internal(name));
+	}
+
+	public AudioResource(String name, FileHandle file) {
+		this.NAME = name;
+		this.SOUND = Gdx.audio.newSound(file);
+		this.SIZE = estimateSize(file);
+	}
+
+	/**
+	 * Sounds are kept decoded, compressed files take roughly ten times their
+	 * size.
+	 */
+	private static long estimateSize(FileHandle file) {
+		if (file.extension().equalsIgnoreCase("wav")) {
+			return file.length();
+		}
+		return file.length() * 10;
 	}
 
 	@Override
@@ -22,6 +42,11 @@ public class AudioResource implements IResource {
 		return this.NAME;
 	}
 
+	@Override
+	public long getSize() {
+		return this.SIZE;
+	}
+
 	public Sound getSound() {
 		return this.SOUND;
 	}
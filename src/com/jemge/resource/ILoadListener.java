@@ -0,0 +1,11 @@
+package com.jemge.resource;
+
+/**
+ * Callback of the {@link ResourceLoader}, always called on the render thread.
+ */
+
+public interface ILoadListener {
+	public void loaded(IResource resource);
+
+	public void failed(String name, Throwable error);
+}
@@ -2,10 +2,15 @@ package com.jemge.resource;
 
 public interface IResource {
 	public enum ResourceType {
-		TEXTURE, SOUND
+		TEXTURE, SOUND, ATLAS
 	}
 
 	public ResourceType getType();
 
 	public String getName();
+
+	/**
+	 * @return estimated memory use in bytes, used by the resource cache
+	 */
+	public long getSize();
 }
\ No newline at end of file
@@ -0,0 +1,318 @@
+package com.jemge.resource;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads resources in the background. Files are read and decoded on worker
+ * threads, the GL upload happens in {@link #update(long)} on the render thread
+ * and stops once the time budget of the frame is used up. Higher priorities
+ * are decoded and uploaded first.
+ * <p/>
+ * NOTE: the futures complete in {@link #update(long)}, never wait for them on
+ * the render thread.
+ *
+ * @see ResourceManager#loadTexture(String, String, int, ILoadListener)
+ */
+
+public class ResourceLoader {
+	private final ResourceManager MANAGER;
+	private final PriorityBlockingQueue<LoadTask> UPLOADS;
+	private final AtomicLong SEQUENCE = new AtomicLong();
+	private ThreadPoolExecutor workers;
+
+	private int queued = 0;
+	private int finished = 0;
+
+	public ResourceLoader(ResourceManager manager) {
+		this.MANAGER = manager;
+		this.UPLOADS = new PriorityBlockingQueue<LoadTask>();
+	}
+
+	private ThreadPoolExecutor getWorkers() {
+		if (this.workers == null) {
+			final int THREADS = Math.max(1, Runtime.getRuntime()
+					.availableProcessors() - 1);
+			this.workers = new ThreadPoolExecutor(THREADS, THREADS, 1,
+					TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							final Thread THREAD = new Thread(runnable,
+									"ResourceLoader");
+							THREAD.setDaemon(true);
+							return THREAD;
+						}
+					});
+			this.workers.allowCoreThreadTimeOut(true);
+		}
+		return this.workers;
+	}
+
+	public Future<IResource> loadTexture(String name, String file,
+			int priority, ILoadListener listener) {
+		return queue(new LoadTask(name, file, IResource.ResourceType.TEXTURE,
+				priority, listener));
+	}
+
+	public Future<IResource> loadSound(String name, String file,
+			int priority, ILoadListener listener) {
+		return queue(new LoadTask(name, file, IResource.ResourceType.SOUND,
+				priority, listener));
+	}
+
+	private LoadTask queue(LoadTask task) {
+		this.queued++;
+		getWorkers().execute(task);
+		return task;
+	}
+
+	/**
+	 * Uploads decoded resources until the budget is used up, at least one per
+	 * call. Must be called on the render thread.
+	 *
+	 * @param budget
+	 *            time budget in nanoseconds
+	 */
+	public void update(long budget) {
+		final long START = System.nanoTime();
+		LoadTask task;
+		while ((task = this.UPLOADS.poll()) != null) {
+			task.upload();
+			this.finished++;
+
+			if (System.nanoTime() - START >= budget) {
+				break;
+			}
+		}
+
+		if (this.finished == this.queued) {
+			this.queued = 0;
+			this.finished = 0;
+		}
+	}
+
+	/**
+	 * @return 0 to 1, progress of all resources queued since the loader was
+	 *         idle the last time
+	 */
+	public float getProgress() {
+		if (this.queued == 0) {
+			return 1f;
+		}
+		return (float) this.finished / this.queued;
+	}
+
+	public boolean isDone() {
+		return this.queued == this.finished;
+	}
+
+	public void dispose() {
+		if (this.workers != null) {
+			this.workers.shutdownNow();
+		}
+		LoadTask task;
+		while ((task = this.UPLOADS.poll()) != null) {
+			task.discard();
+		}
+	}
+
+	private final class LoadTask implements Runnable, Future<IResource>,
+			Comparable<LoadTask> {
+		private final String NAME;
+		private final String FILE;
+		private final IResource.ResourceType TYPE;
+		private final int PRIORITY;
+		private final long ORDER;
+		private final ILoadListener LISTENER;
+		private final CountDownLatch DONE = new CountDownLatch(1);
+
+		private volatile boolean cancelled = false;
+		private Pixmap pixmap;
+		private FileHandle data;
+		private IResource resource;
+		private Throwable error;
+
+		private LoadTask(String name, String file, IResource.ResourceType type,
+				int priority, ILoadListener listener) {
+			this.NAME = name;
+			this.FILE = file;
+			this.TYPE = type;
+			this.PRIORITY = priority;
+			this.ORDER = ResourceLoader.this.SEQUENCE.getAndIncrement();
+			this.LISTENER = listener;
+		}
+
+		/**
+		 * Worker thread: read and decode.
+		 */
+		@Override
+		public void run() {
+			if (this.cancelled) {
+				ResourceLoader.this.UPLOADS.add(this);
+				return;
+			}
+
+			try {
+				final FileHandle HANDLE = Gdx.files.internal(this.FILE);
+				if (this.TYPE == IResource.ResourceType.TEXTURE) {
+					this.pixmap = new Pixmap(HANDLE);
+				} else {
+					this.data = new MemoryFileHandle(HANDLE);
+				}
+			} catch (Throwable e) {
+				this.error = e;
+			}
+			ResourceLoader.this.UPLOADS.add(this);
+		}
+
+		/**
+		 * Render thread: upload and notify.
+		 */
+		private void upload() {
+			if (this.cancelled) {
+				discard();
+				return;
+			}
+
+			if (this.error == null) {
+				try {
+					if (this.TYPE == IResource.ResourceType.TEXTURE) {
+						this.resource = new TextureResource(this.NAME,
+								this.pixmap);
+					} else {
+						this.resource = new AudioResource(this.NAME, this.data);
+					}
+					ResourceLoader.this.MANAGER.addResource(this.NAME,
+							this.resource, this.FILE);
+				} catch (Throwable e) {
+					this.error = e;
+				}
+			}
+			discard();
+
+			if (this.LISTENER != null) {
+				if (this.error == null) {
+					this.LISTENER.loaded(this.resource);
+				} else {
+					this.LISTENER.failed(this.NAME, this.error);
+				}
+			} else if (this.error != null) {
+				Gdx.app.error("ResourceLoader", "Can't load " + this.FILE,
+						this.error);
+			}
+		}
+
+		private void discard() {
+			if (this.pixmap != null) {
+				this.pixmap.dispose();
+				this.pixmap = null;
+			}
+			this.data = null;
+			this.DONE.countDown();
+		}
+
+		@Override
+		public int compareTo(LoadTask other) {
+			if (this.PRIORITY != other.PRIORITY) {
+				return this.PRIORITY > other.PRIORITY ? -1 : 1;
+			}
+			return this.ORDER < other.ORDER ? -1 : this.ORDER == other.ORDER ? 0
+					: 1;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (isDone()) {
+				return false;
+			}
+			this.cancelled = true;
+			this.DONE.countDown();
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return this.cancelled;
+		}
+
+		@Override
+		public boolean isDone() {
+			return this.DONE.getCount() == 0;
+		}
+
+		@Override
+		public IResource get() throws InterruptedException,
+				ExecutionException {
+			this.DONE.await();
+			return result();
+		}
+
+		@Override
+		public IResource get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException,
+				TimeoutException {
+			if (!this.DONE.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return result();
+		}
+
+		private IResource result() throws ExecutionException {
+			if (this.cancelled) {
+				throw new CancellationException();
+			}
+			if (this.error != null) {
+				throw new ExecutionException(this.error);
+			}
+			return this.resource;
+		}
+	}
+
+	/**
+	 * File read into memory by a worker, so the audio backend doesn't touch the
+	 * disk on the render thread.
+	 */
+	private static final class MemoryFileHandle extends FileHandle {
+		private final byte[] BYTES;
+
+		private MemoryFileHandle(FileHandle file) {
+			super(file.file(), file.type());
+			this.BYTES = file.readBytes();
+		}
+
+		@Override
+		public InputStream read() {
+			return new ByteArrayInputStream(this.BYTES);
+		}
+
+		@Override
+		public byte[] readBytes() {
+			return this.BYTES;
+		}
+
+		@Override
+		public long length() {
+			return this.BYTES.length;
+		}
+
+		@Override
+		public boolean exists() {
+			return true;
+		}
+	}
+}
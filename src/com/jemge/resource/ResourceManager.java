@@ -16,19 +16,336 @@
 
 package com.jemge.resource;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.jemge.core.EngineModule;
+import com.jemge.j2d.JSprite;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 public class ResourceManager extends EngineModule {
 	private final HashMap<String, IResource> RESOURCELIST;
+	private final HashMap<String, String> PACKLIST;
+	private final HashMap<String, TextureRegion> REGIONS;
+	private final ResourceLoader LOADER;
+
+	// reference counting and cache
+	private final HashMap<String, Source> SOURCES;
+	private final HashMap<String, int[]> REFERENCES;
+	private final LinkedHashMap<String, IResource> POOL;
+	private long memoryBudget = Long.MAX_VALUE;
+	private long memoryUsed = 0;
+	private int cacheHits = 0;
+	private int cacheMisses = 0;
+	private int evictions = 0;
+
+	private boolean texturePacking = false;
+	private String atlasCache = "atlascache";
+	private int atlasCount = 0;
+	private long uploadBudget = 4000000L;
 
 	public ResourceManager() {
 		this.RESOURCELIST = new HashMap<>();
+		this.PACKLIST = new HashMap<>();
+		this.REGIONS = new HashMap<>();
+		this.LOADER = new ResourceLoader(this);
+		this.SOURCES = new HashMap<>();
+		this.REFERENCES = new HashMap<>();
+		// access order, the eldest entry is the least recently released
+		this.POOL = new LinkedHashMap<>(16, 0.75f, true);
 	}
 
+	/**
+	 * Adds a resource. A resource of the same name is replaced and disposed,
+	 * whoever still holds the old one must not use it anymore.
+	 */
 	public void addResource(String name, IResource resource) {
-		this.RESOURCELIST.put(name, resource);
+		putResource(name, resource, null);
+	}
+
+	/**
+	 * Adds a resource that can be loaded again from the file after it was
+	 * evicted from the cache. It is only pooled for eviction once it was
+	 * acquired and released, so resources used through {@link #getTexture}
+	 * or {@link #getSound} without a reference are never evicted.
+	 */
+	void addResource(String name, IResource resource, String file) {
+		putResource(name, resource, new Source(file, resource.getType()));
+	}
+
+	private void putResource(String name, IResource resource, Source source) {
+		final IResource OLD = this.RESOURCELIST.put(name, resource);
+		if (OLD != null) {
+			this.memoryUsed -= OLD.getSize();
+			this.POOL.remove(name);
+			if (OLD != resource) {
+				disposeResource(OLD);
+			}
+		}
+		this.memoryUsed += resource.getSize();
+
+		if (source == null) {
+			this.SOURCES.remove(name);
+		} else {
+			this.SOURCES.put(name, source);
+		}
+		// the new resource isn't pooled, only others are evicted
+		trimPool();
+	}
+
+	/**
+	 * Adds a texture. With texture packing enabled the image is only
+	 * registered and packed into a shared atlas on {@link #packTextures()},
+	 * otherwise a {@link TextureResource} is loaded right away.
+	 */
+	public void addTexture(String name, String file) {
+		if (this.texturePacking) {
+			this.PACKLIST.put(name, file);
+		} else {
+			addResource(name, new TextureResource(file), file);
+		}
+	}
+
+	public void addSound(String name, String file) {
+		addResource(name, newSound(name, file), file);
+	}
+
+	private static AudioResource newSound(String name, String file) {
+		return new AudioResource(name, Gdx.files.internal(file));
+	}
+
+	/**
+	 * Returns the resource and increases its reference count. A resource that
+	 * was evicted from the cache is loaded again. Every acquire needs a
+	 * {@link #release(String)}.
+	 */
+	public IResource acquire(String name) {
+		IResource resource = this.RESOURCELIST.get(name);
+		final Source SOURCE = this.SOURCES.get(name);
+		if (resource == null && SOURCE == null) {
+			throw new NullPointerException("This resource doesn't exist.");
+		}
+
+		// referenced first, so a loaded resource isn't pooled and evicted
+		final int[] COUNT = this.REFERENCES.get(name);
+		if (COUNT == null) {
+			this.REFERENCES.put(name, new int[] { 1 });
+		} else {
+			COUNT[0]++;
+		}
+
+		if (resource != null) {
+			this.cacheHits++;
+			this.POOL.remove(name);
+		} else {
+			this.cacheMisses++;
+			if (SOURCE.TYPE == IResource.ResourceType.SOUND) {
+				resource = newSound(name, SOURCE.FILE);
+			} else {
+				resource = new TextureResource(SOURCE.FILE);
+			}
+			putResource(name, resource, SOURCE);
+		}
+		return resource;
+	}
+
+	/**
+	 * Decreases the reference count. Unreferenced resources that can be
+	 * loaded again are kept in a LRU pool and disposed once the memory budget
+	 * is exceeded.
+	 */
+	public void release(String name) {
+		final int[] COUNT = this.REFERENCES.get(name);
+		if (COUNT == null) {
+			return;
+		}
+		if (--COUNT[0] > 0) {
+			return;
+		}
+
+		this.REFERENCES.remove(name);
+		if (this.SOURCES.containsKey(name)) {
+			this.POOL.put(name, this.RESOURCELIST.get(name));
+			trimPool();
+		}
+	}
+
+	public int getReferenceCount(String name) {
+		final int[] COUNT = this.REFERENCES.get(name);
+		return COUNT == null ? 0 : COUNT[0];
+	}
+
+	private void trimPool() {
+		final Iterator<Map.Entry<String, IResource>> ITERATOR = this.POOL
+				.entrySet().iterator();
+		while (this.memoryUsed > this.memoryBudget && ITERATOR.hasNext()) {
+			final Map.Entry<String, IResource> ENTRY = ITERATOR.next();
+			final IResource RESOURCE = ENTRY.getValue();
+			ITERATOR.remove();
+
+			this.RESOURCELIST.remove(ENTRY.getKey());
+			this.memoryUsed -= RESOURCE.getSize();
+			this.evictions++;
+			disposeResource(RESOURCE);
+		}
+	}
+
+	/**
+	 * Memory budget in bytes for all resources, unreferenced resources are
+	 * evicted while it is exceeded. Default is no limit.
+	 */
+	public void setMemoryBudget(long bytes) {
+		this.memoryBudget = bytes;
+		trimPool();
+	}
+
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+
+	/**
+	 * @return estimated memory use of all resources in bytes
+	 */
+	public long getMemoryUsed() {
+		return this.memoryUsed;
+	}
+
+	public int getCacheHits() {
+		return this.cacheHits;
+	}
+
+	public int getCacheMisses() {
+		return this.cacheMisses;
+	}
+
+	public int getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Packs all textures registered since the last call into atlas pages,
+	 * textures bigger than a page are loaded as {@link TextureResource}.
+	 * Called automatically when a packed region is requested.
+	 */
+	public void packTextures() {
+		if (this.PACKLIST.isEmpty()) {
+			return;
+		}
+
+		final TextureAtlasResource ATLAS = new TextureAtlasResource("atlas"
+				+ this.atlasCount++, this.PACKLIST,
+				this.atlasCache == null ? null : Gdx.files
+						.local(this.atlasCache));
+		addResource(ATLAS.getName(), ATLAS);
+
+		for (Map.Entry<String, String> entry : this.PACKLIST.entrySet()) {
+			final TextureRegion REGION = ATLAS.getRegion(entry.getKey());
+			if (REGION != null) {
+				this.REGIONS.put(entry.getKey(), REGION);
+			} else { // bigger than a page
+				addResource(entry.getKey(), new TextureResource(
+						entry.getValue()), entry.getValue());
+			}
+		}
+		this.PACKLIST.clear();
+	}
+
+	/**
+	 * @return the region of a packed texture or a region covering a whole
+	 *         {@link TextureResource}
+	 */
+	public TextureRegion getRegion(String name) {
+		packTextures();
+
+		final TextureRegion REGION = this.REGIONS.get(name);
+		if (REGION != null) {
+			return REGION;
+		}
+		if (this.RESOURCELIST.get(name) instanceof TextureResource) {
+			return new TextureRegion((TextureResource) this.RESOURCELIST
+					.get(name));
+		}
+
+		throw new NullPointerException("This texture doesn't exist.");
+	}
+
+	/**
+	 * Creates a sprite of a texture, sprites of packed textures share the
+	 * atlas page and don't break the batching.
+	 */
+	public JSprite newSprite(String name) {
+		return new JSprite(getRegion(name));
+	}
+
+	/**
+	 * Pack textures added with {@link #addTexture(String, String)} into
+	 * atlas pages instead of loading them as single textures.
+	 */
+	public void setTexturePacking(boolean pack) {
+		this.texturePacking = pack;
+	}
+
+	public boolean getTexturePacking() {
+		return this.texturePacking;
+	}
+
+	/**
+	 * Local directory the packed pages are cached in, null disables the
+	 * cache. Default is "atlascache".
+	 */
+	public void setAtlasCache(String directory) {
+		this.atlasCache = directory;
+	}
+
+	/**
+	 * Loads a texture in the background, it is added to the resource list
+	 * once it was uploaded.
+	 *
+	 * @param priority
+	 *            higher priorities are loaded first
+	 * @param listener
+	 *            called on the render thread, can be null
+	 */
+	public Future<IResource> loadTexture(String name, String file,
+			int priority, ILoadListener listener) {
+		return this.LOADER.loadTexture(name, file, priority, listener);
+	}
+
+	/**
+	 * Loads a sound in the background, it is added to the resource list once
+	 * it was created.
+	 *
+	 * @param priority
+	 *            higher priorities are loaded first
+	 * @param listener
+	 *            called on the render thread, can be null
+	 */
+	public Future<IResource> loadSound(String name, String file,
+			int priority, ILoadListener listener) {
+		return this.LOADER.loadSound(name, file, priority, listener);
+	}
+
+	/**
+	 * @return 0 to 1, progress of the background loading
+	 */
+	public float getLoadingProgress() {
+		return this.LOADER.getProgress();
+	}
+
+	public boolean isLoadingDone() {
+		return this.LOADER.isDone();
+	}
+
+	/**
+	 * Time per frame that is spent on uploading loaded resources. Default is
+	 * 4 ms.
+	 */
+	public void setUploadBudget(float milliseconds) {
+		this.uploadBudget = (long) (milliseconds * 1000000L);
 	}
 
 	public IResource getResource(String name) {
@@ -57,17 +374,37 @@ public class ResourceManager extends EngineModule {
 
 	@Override
 	public void update() {
+		this.LOADER.update(this.uploadBudget);
 	}
 
 	@Override
 	public void dispose() {
+		this.LOADER.dispose();
+
 		for (IResource resource : this.RESOURCELIST.values()) {
-			if (resource instanceof TextureResource) {
-				((TextureResource) resource).dispose();
-			}
-			if (resource instanceof AudioResource) {
-				((AudioResource) resource).getSound().dispose();
-			}
+			disposeResource(resource);
+		}
+	}
+
+	private static void disposeResource(IResource resource) {
+		if (resource instanceof TextureResource) {
+			((TextureResource) resource).dispose();
+		}
+		if (resource instanceof AudioResource) {
+			((AudioResource) resource).getSound().dispose();
+		}
+		if (resource instanceof TextureAtlasResource) {
+			((TextureAtlasResource) resource).dispose();
+		}
+	}
+
+	private static final class Source {
+		private final String FILE;
+		private final IResource.ResourceType TYPE;
+
+		private Source(String file, IResource.ResourceType type) {
+			this.FILE = file;
+			this.TYPE = type;
 		}
 	}
-}
\ No newline at end of file
+}
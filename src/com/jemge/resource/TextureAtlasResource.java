@@ -0,0 +1,201 @@
+package com.jemge.resource;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Texture atlas packed at runtime from single image files. The packed pages
+ * and the region index are written to a cache directory, later startups load
+ * them directly as long as the source files didn't change.
+ * <p/>
+ * Images that don't fit on a page with padding are left out, the atlas has
+ * no region for them.
+ *
+ * @see ResourceManager#setTexturePacking(boolean)
+ */
+
+public class TextureAtlasResource implements IResource {
+	public static int pageSize = 1024;
+	public static int padding = 2;
+
+	private final String NAME;
+	private final TextureAtlas ATLAS;
+
+	/**
+	 * @param name
+	 *            name of the atlas, also used for the cache files
+	 * @param files
+	 *            region name to internal image file
+	 * @param cache
+	 *            directory for the packed pages, null disables caching
+	 */
+	public TextureAtlasResource(String name, Map<String, String> files,
+			FileHandle cache) {
+		this.NAME = name;
+
+		final TreeMap<String, String> SORTED = new TreeMap<String, String>(
+				files);
+		final String KEY = cacheKey(SORTED);
+
+		TextureAtlas atlas = null;
+		if (cache != null) {
+			atlas = loadCache(cache, KEY);
+		}
+		if (atlas == null) {
+			atlas = pack(SORTED, cache, KEY);
+		}
+		this.ATLAS = atlas;
+	}
+
+	private static String cacheKey(TreeMap<String, String> files) {
+		final StringBuilder KEY = new StringBuilder();
+		for (Map.Entry<String, String> entry : files.entrySet()) {
+			final FileHandle FILE = Gdx.files.internal(entry.getValue());
+			KEY.append(entry.getKey()).append('=').append(entry.getValue())
+					.append(':').append(FILE.length()).append(':')
+					.append(FILE.lastModified()).append(';');
+		}
+		return Integer.toHexString(KEY.toString().hashCode()) + "-"
+				+ files.size() + "-" + pageSize;
+	}
+
+	private TextureAtlas loadCache(FileHandle cache, String key) {
+		final FileHandle INDEX = cache.child(this.NAME + ".index");
+		if (!INDEX.exists()) {
+			return null;
+		}
+
+		final String[] LINES = INDEX.readString().split("\n");
+		if (LINES.length < 2 || !LINES[0].equals(key)) {
+			return null;
+		}
+
+		final TextureAtlas ATLAS = new TextureAtlas();
+		try {
+			final int PAGES = Integer.parseInt(LINES[1]);
+			final Texture[] TEXTURES = new Texture[PAGES];
+			for (int i = 0; i < PAGES; i++) {
+				TEXTURES[i] = new Texture(cache.child(this.NAME + "_" + i
+						+ ".png"));
+				ATLAS.getTextures().add(TEXTURES[i]);
+			}
+
+			for (int i = 2; i < LINES.length; i++) {
+				final String[] VALUES = LINES[i].split("\t");
+				if (VALUES.length != 6) {
+					continue;
+				}
+				ATLAS.addRegion(VALUES[0],
+						TEXTURES[Integer.parseInt(VALUES[1])],
+						Integer.parseInt(VALUES[2]),
+						Integer.parseInt(VALUES[3]),
+						Integer.parseInt(VALUES[4]),
+						Integer.parseInt(VALUES[5]));
+			}
+		} catch (RuntimeException e) {
+			Gdx.app.log("TextureAtlasResource", "Ignoring broken cache of "
+					+ this.NAME + ": " + e.getMessage());
+			ATLAS.dispose();
+			return null;
+		}
+
+		return ATLAS;
+	}
+
+	private TextureAtlas pack(TreeMap<String, String> files, FileHandle cache,
+			String key) {
+		final PixmapPacker PACKER = new PixmapPacker(pageSize, pageSize,
+				Pixmap.Format.RGBA8888, padding, false);
+
+		for (Map.Entry<String, String> entry : files.entrySet()) {
+			final Pixmap PIXMAP = new Pixmap(Gdx.files.internal(entry
+					.getValue()));
+			if (fits(PIXMAP)) {
+				PACKER.pack(entry.getKey(), PIXMAP);
+			} else {
+				Gdx.app.log("TextureAtlasResource", "Not packing "
+						+ entry.getKey() + ", it is bigger than a page");
+			}
+			PIXMAP.dispose();
+		}
+
+		if (cache != null) {
+			writeCache(PACKER, cache, key);
+		}
+
+		final TextureAtlas ATLAS = PACKER.generateTextureAtlas(
+				Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest,
+				false);
+		PACKER.dispose();
+
+		return ATLAS;
+	}
+
+	private static boolean fits(Pixmap pixmap) {
+		return pixmap.getWidth() + padding * 2 <= pageSize
+				&& pixmap.getHeight() + padding * 2 <= pageSize;
+	}
+
+	private void writeCache(PixmapPacker packer, FileHandle cache, String key) {
+		final StringBuilder INDEX = new StringBuilder();
+		INDEX.append(key).append('\n');
+		INDEX.append(packer.getPages().size).append('\n');
+
+		for (int i = 0; i < packer.getPages().size; i++) {
+			final PixmapPacker.Page PAGE = packer.getPages().get(i);
+			PixmapIO.writePNG(cache.child(this.NAME + "_" + i + ".png"),
+					PAGE.getPixmap());
+
+			for (String region : PAGE.getRects().keys()) {
+				final Rectangle RECT = PAGE.getRects().get(region);
+				INDEX.append(region).append('\t').append(i).append('\t')
+						.append((int) RECT.x).append('\t').append((int) RECT.y)
+						.append('\t').append((int) RECT.width).append('\t')
+						.append((int) RECT.height).append('\n');
+			}
+		}
+
+		cache.child(this.NAME + ".index").writeString(INDEX.toString(), false);
+	}
+
+	@Override
+	public ResourceType getType() {
+		return ResourceType.ATLAS;
+	}
+
+	@Override
+	public String getName() {
+		return this.NAME;
+	}
+
+	@Override
+	public long getSize() {
+		long size = 0;
+		for (Texture texture : this.ATLAS.getTextures()) {
+			size += TextureResource.estimateSize(texture);
+		}
+		return size;
+	}
+
+	public TextureRegion getRegion(String name) {
+		return this.ATLAS.findRegion(name);
+	}
+
+	public TextureAtlas getAtlas() {
+		return this.ATLAS;
+	}
+
+	public void dispose() {
+		this.ATLAS.dispose();
+	}
+}
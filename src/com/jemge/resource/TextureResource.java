@@ -1,6 +1,7 @@
 package com.jemge.resource;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 
 public class TextureResource extends Texture implements IResource {
@@ -11,6 +12,14 @@ public class TextureResource extends Texture implements IResource {
 		this.NAME = name;
 	}
 
+	/**
+	 * Uploads an already decoded image, the pixmap can be disposed afterwards.
+	 */
+	public TextureResource(String name, Pixmap pixmap) {
+		super(pixmap);
+		this.NAME = name;
+	}
+
 	@Override
 	public ResourceType getType() {
 		return ResourceType.TEXTURE;
@@ -20,4 +29,36 @@ public class TextureResource extends Texture implements IResource {
 	public String getName() {
 		return this.NAME;
 	}
+
+	@Override
+	public long getSize() {
+		return estimateSize(this);
+	}
+
+	/**
+	 * @return estimated video memory of the texture in bytes
+	 */
+	public static long estimateSize(Texture texture) {
+		long size = (long) texture.getWidth() * texture.getHeight();
+		switch (texture.getTextureData().getFormat()) {
+		case Alpha:
+		case Intensity:
+			break;
+		case LuminanceAlpha:
+		case RGB565:
+		case RGBA4444:
+			size *= 2;
+			break;
+		case RGB888:
+			size *= 3;
+			break;
+		default:
+			size *= 4;
+			break;
+		}
+		if (texture.getTextureData().useMipMaps()) {
+			size = size * 4 / 3;
+		}
+		return size;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package examples.Culling;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Rectangle;
+import com.jemge.core.JAppLWJGL;
+import com.jemge.core.JConfig;
+import com.jemge.core.JGame;
+import com.jemge.core.Jemge;
+import com.jemge.j2d.JSprite;
+import com.jemge.j2d.culling.GridBasedCulling;
+import com.jemge.j2d.culling.ICullingSystem;
+import com.jemge.j2d.culling.ZoneBasedCulling;
+import com.jemge.resource.TextureResource;
+
+/**
+ * Compares insert and cull times of the culling systems with 100k static
+ * sprites. Results are written to the log.
+ */
+
+public class CullingBenchmark extends JGame {
+	private static final int SIZE = 317; // ~100k tiles
+	private static final int FRAMES = 1000;
+
+	private JSprite[] sprites;
+
+	@Override
+	public void create() {
+		super.create(); // important call, don't forget it!
+
+		Jemge.manager.addResource("tile", new TextureResource(
+				"assets/erdeundgras.jpg"));
+
+		this.sprites = new JSprite[SIZE * SIZE];
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				this.sprites[x * SIZE + y] = new JSprite(
+						Jemge.manager.getTexture("tile"), x * 64, y * 64, 64,
+						64).setStatic(true);
+			}
+		}
+
+		benchmark(new ZoneBasedCulling());
+		benchmark(new GridBasedCulling());
+
+		Gdx.app.exit();
+	}
+
+	private void benchmark(ICullingSystem culling) {
+		final String NAME = culling.getClass().getSimpleName();
+		final Rectangle VIEW = new Rectangle(Jemge.renderer2D.CAMERAVIEW);
+
+		long time = System.nanoTime();
+		for (JSprite sprite : this.sprites) {
+			culling.putObject(sprite);
+		}
+		Gdx.app.log(NAME, "insert: " + (System.nanoTime() - time) / 1000000f
+				+ " ms");
+
+		int visible = 0;
+		time = System.nanoTime();
+		for (int i = 0; i < FRAMES; i++) {
+			VIEW.x = (i * 17) % (SIZE * 64);
+			Jemge.renderer2D.CAMERAVIEW.set(VIEW);
+			culling.prepareCull();
+			culling.cull(VIEW);
+			visible += culling.getFinalRenderList().size();
+		}
+		Gdx.app.log(NAME, "cull: " + (System.nanoTime() - time) / 1000000f
+				/ FRAMES + " ms/frame, " + visible / FRAMES + " visible");
+
+		time = System.nanoTime();
+		for (JSprite sprite : this.sprites) {
+			culling.removeObject(sprite);
+		}
+		Gdx.app.log(NAME, "remove: " + (System.nanoTime() - time) / 1000000f
+				+ " ms");
+	}
+
+	public static void main(String[] args) {
+		JConfig config = new JConfig();
+
+		new JAppLWJGL(new CullingBenchmark(), config);
+	}
+}
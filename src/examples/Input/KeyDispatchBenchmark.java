@@ -0,0 +1,149 @@
+package examples.Input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.jemge.core.JAppLWJGL;
+import com.jemge.core.JConfig;
+import com.jemge.core.JGame;
+import com.jemge.core.Jemge;
+import com.jemge.input.IKeyListener;
+import com.jemge.input.ListenKeyDown;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the key dispatch of the InputManager with the old reflection loop
+ * (getAnnotation and Method.invoke for every listener) with 500 listeners on
+ * five keys. Results are written to the log.
+ */
+
+public class KeyDispatchBenchmark extends JGame {
+	private static final int LISTENERS = 500;
+	private static final int EVENTS = 200000;
+	private static final int WARMUP = 20000;
+	private static final int[] KEYS = { Input.Keys.A, Input.Keys.B,
+			Input.Keys.C, Input.Keys.D, Input.Keys.E };
+
+	private static int calls = 0;
+
+	private final List<Method> METHODS = new ArrayList<Method>();
+	private final List<Object> OBJECTS = new ArrayList<Object>();
+
+	@Override
+	public void create() {
+		super.create(); // important call, don't forget it!
+
+		for (int i = 0; i < LISTENERS; i++) {
+			final IKeyListener LISTENER;
+			switch (i % KEYS.length) {
+			case 0:
+				LISTENER = new ListenerA();
+				break;
+			case 1:
+				LISTENER = new ListenerB();
+				break;
+			case 2:
+				LISTENER = new ListenerC();
+				break;
+			case 3:
+				LISTENER = new ListenerD();
+				break;
+			default:
+				LISTENER = new ListenerE();
+				break;
+			}
+
+			Jemge.inputManager.addKeyListener(LISTENER);
+			for (Method method : LISTENER.getClass().getMethods()) {
+				if (method.isAnnotationPresent(ListenKeyDown.class)) {
+					this.METHODS.add(method);
+					this.OBJECTS.add(LISTENER);
+				}
+			}
+		}
+
+		reflection(WARMUP);
+		table(WARMUP);
+
+		calls = 0;
+		long time = System.nanoTime();
+		reflection(EVENTS);
+		Gdx.app.log("reflection", (System.nanoTime() - time) / EVENTS
+				+ " ns/event, " + calls / EVENTS + " calls/event");
+
+		calls = 0;
+		time = System.nanoTime();
+		table(EVENTS);
+		Gdx.app.log("dispatch table", (System.nanoTime() - time) / EVENTS
+				+ " ns/event, " + calls / EVENTS + " calls/event");
+
+		Gdx.app.exit();
+	}
+
+	private void reflection(int events) {
+		for (int i = 0; i < events; i++) {
+			final int KEY = KEYS[i % KEYS.length];
+			for (int a = 0; a < this.METHODS.size(); a++) {
+				final Method METHOD = this.METHODS.get(a);
+				if (METHOD.getAnnotation(ListenKeyDown.class).key() == KEY) {
+					try {
+						METHOD.invoke(this.OBJECTS.get(a));
+					} catch (IllegalAccessException | InvocationTargetException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+
+	private void table(int events) {
+		for (int i = 0; i < events; i++) {
+			Jemge.inputManager.keyDown(KEYS[i % KEYS.length]);
+		}
+	}
+
+	public static class ListenerA implements IKeyListener {
+		@ListenKeyDown(key = Input.Keys.A)
+		public void pressed() {
+			calls++;
+		}
+	}
+
+	public static class ListenerB implements IKeyListener {
+		@ListenKeyDown(key = Input.Keys.B)
+		public void pressed() {
+			calls++;
+		}
+	}
+
+	public static class ListenerC implements IKeyListener {
+		@ListenKeyDown(key = Input.Keys.C)
+		public void pressed() {
+			calls++;
+		}
+	}
+
+	public static class ListenerD implements IKeyListener {
+		@ListenKeyDown(key = Input.Keys.D)
+		public void pressed() {
+			calls++;
+		}
+	}
+
+	public static class ListenerE implements IKeyListener {
+		@ListenKeyDown(key = Input.Keys.E)
+		public void pressed() {
+			calls++;
+		}
+	}
+
+	public static void main(String[] args) {
+		JConfig config = new JConfig();
+		config.setTitle("KeyDispatchBenchmark");
+
+		new JAppLWJGL(new KeyDispatchBenchmark(), config);
+	}
+}
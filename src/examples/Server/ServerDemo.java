@@ -0,0 +1,48 @@
+package examples.Server;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.jemge.box2d.Physics2D;
+import com.jemge.core.JServer;
+import com.jemge.core.JServerGame;
+
+/**
+ * Drops a ball in a headless world at 60 ticks per second and prints its
+ * height once a second. Runs without window and GPU.
+ */
+
+public class ServerDemo extends JServerGame {
+	private Body ball;
+	private int tick = 0;
+
+	@Override
+	public void create() {
+		super.create(); // important call, don't forget it!
+
+		final BodyDef DEF = new BodyDef();
+		DEF.type = BodyDef.BodyType.DynamicBody;
+		DEF.position.set(0, 100);
+		this.ball = Physics2D.getMainWorld().createBody(DEF);
+
+		final CircleShape SHAPE = new CircleShape();
+		SHAPE.setRadius(1f);
+		this.ball.createFixture(SHAPE, 1f);
+		SHAPE.dispose();
+	}
+
+	@Override
+	public void tick(float delta) {
+		if (++this.tick % 60 == 0) {
+			System.out.println("tick " + this.tick + ": y = "
+					+ this.ball.getPosition().y);
+		}
+	}
+
+	public static void main(String[] args) {
+		Physics2D.timeStep = 1f / 60f;
+
+		final JServer SERVER = new JServer(new ServerDemo(), 60);
+		SERVER.run();
+	}
+}
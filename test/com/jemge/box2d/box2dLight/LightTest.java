@@ -0,0 +1,75 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.box2d.box2dLight;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.jemge.core.JAppLWJGL;
+import com.jemge.core.JConfig;
+import com.jemge.core.JGame;
+import com.jemge.core.Jemge;
+import com.jemge.j2d.culling.DynamicTree;
+
+/**
+ * Constructs every kind of light and checks that it is listed and indexed.
+ * Needs a display for the GL context, exits on its own.
+ */
+
+public class LightTest extends JGame {
+	@Override
+	public void create() {
+		super.create();
+		// the rays of culled lights aren't cast before the first frame
+		Jemge.renderer2D.getRayHandler().setCulling(false);
+
+		final PointLight POINT = new PointLight(Light.Quality.POOR,
+				Color.WHITE, 100, 500, 500);
+		final ConeLight CONE = new ConeLight(Light.Quality.POOR, Color.WHITE,
+				100, -500, -500, 0, 45);
+		final DirectionalLight DIRECTIONAL = new DirectionalLight(
+				Light.Quality.POOR, Color.WHITE, 45);
+
+		final RayHandler HANDLER = POINT.rayHandler;
+		check(HANDLER.LIGHTLIST.contains(POINT, true),
+				"point light not listed");
+		check(HANDLER.LIGHTLIST.contains(CONE, true), "cone light not listed");
+		check(HANDLER.LIGHTLIST.contains(DIRECTIONAL, true),
+				"directional light not listed");
+		check(POINT.indexProxy != DynamicTree.NULL_NODE,
+				"point light not indexed");
+		check(CONE.indexProxy != DynamicTree.NULL_NODE,
+				"cone light not indexed");
+
+		// the directional light lights everything, switch it off first
+		DIRECTIONAL.setActive(false);
+		check(HANDLER.pointAtLight(510, 500), "point light not found");
+		check(!HANDLER.pointAtLight(0, 0), "light found where there is none");
+
+		System.out.println("LightTest passed");
+		Gdx.app.exit();
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	public static void main(String[] args) {
+		new JAppLWJGL(new LightTest(), new JConfig());
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright [2014] @author file
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.jemge.j2d;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that transparent entities are sorted after the opaque ones on the
+ * same texture. Runs without GL and without a test framework.
+ */
+
+public class TextureSorterTest {
+	public static void main(String[] args) {
+		final Entity TRANSPARENT = new Entity("transparent", true);
+		final Entity OPAQUE1 = new Entity("opaque1", false);
+		final Entity OPAQUE2 = new Entity("opaque2", false);
+
+		final List<IEntity> LIST = new ArrayList<IEntity>();
+		LIST.add(TRANSPARENT);
+		LIST.add(OPAQUE1);
+		LIST.add(OPAQUE2);
+
+		final TextureSorter SORTER = new TextureSorter();
+		SORTER.sort(LIST);
+
+		check(SORTER.size() == 3, "size is " + SORTER.size());
+		check(SORTER.get(0) == OPAQUE1, "first is " + SORTER.get(0));
+		check(SORTER.get(1) == OPAQUE2, "second is " + SORTER.get(1));
+		check(SORTER.get(2) == TRANSPARENT, "last is " + SORTER.get(2));
+		System.out.println("TextureSorterTest passed");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	private static final class Entity implements IEntity, IRendererObject {
+		private final String NAME;
+		private final boolean TRANSPARENT;
+		private final Rectangle RECTANGLE = new Rectangle();
+
+		private Entity(String name, boolean transparent) {
+			this.NAME = name;
+			this.TRANSPARENT = transparent;
+		}
+
+		@Override
+		public boolean hasTransparent() {
+			return this.TRANSPARENT;
+		}
+
+		@Override
+		public void render(SpriteBatch spriteBatch) {
+		}
+
+		@Override
+		public float getX() {
+			return 0;
+		}
+
+		@Override
+		public float getY() {
+			return 0;
+		}
+
+		@Override
+		public float getRotation() {
+			return 0;
+		}
+
+		@Override
+		public float getHeight() {
+			return 0;
+		}
+
+		@Override
+		public float getWidth() {
+			return 0;
+		}
+
+		@Override
+		public boolean needRender() {
+			return true;
+		}
+
+		@Override
+		public boolean getData(String name) {
+			return false;
+		}
+
+		@Override
+		public Rectangle getRectangle() {
+			return this.RECTANGLE;
+		}
+
+		@Override
+		public String toString() {
+			return this.NAME;
+		}
+	}
+}